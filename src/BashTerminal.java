@@ -1,5 +1,11 @@
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * The BashTerminal class acts like the terminal, where it permits users to enter Linux command lines
@@ -10,9 +16,18 @@ import java.util.Scanner;
 public class BashTerminal {
     private static DirectoryTree structure;
     private static Scanner input;
+    private static TreeBatch batch;
+    private static final TreeMap<Integer, Job> jobs = new TreeMap<>();
+    private static final Set<Integer> reportedJobs = new HashSet<>();
+    private static int nextJobId = 1;
 
     /**
-     * Determines which ls command (ls or ls -R) should be run based on the argument <code>arg</code>.
+     * Determines which ls command (ls, ls -R, or a sorted/paginated ls) should be run based on the
+     * argument <code>arg</code>.
+     *
+     * A sorted/paginated ls accepts -l (long format), -t (by time), -S (by size), -r (reverse),
+     * --sort name|time|size, --limit N, --offset N and --after CURSOR. When more directories/files remain
+     * after a limited page, the cursor to continue from is printed.
      *
      * @param arg
      *      Argument of the ls command.
@@ -29,7 +44,82 @@ public class BashTerminal {
             System.out.println();
         }
         else
-            throw new IllegalArgumentException("Error: Invalid ls command.");
+            lsPageCommand(arg.split(" "));
+    }
+
+    /**
+     * Helper method for lsCommand.
+     * Runs a sorted/paginated ls.
+     *
+     * @param args
+     *      Options of the ls command.
+     *
+     * @throws IllegalArgumentException
+     *      when an option is unknown or has an invalid value.
+     */
+    private static void lsPageCommand(String[] args){
+        boolean longFormat = false, reverse = false;
+        ListOrder order = ListOrder.NAME;
+        String after = null;
+        int offset = 0, limit = Integer.MAX_VALUE;
+
+        for(int i = 0; i < args.length; i++){
+            String option = args[i], value = null;
+            if(option.startsWith("--") && option.contains("=")){
+                value = option.substring(option.indexOf('=') + 1);
+                option = option.substring(0, option.indexOf('='));
+            }
+            else if(option.startsWith("--") && i + 1 < args.length)
+                value = args[++i];
+
+            switch (option) {
+                case "-l" -> longFormat = true;
+                case "-t" -> order = ListOrder.TIME;
+                case "-S" -> order = ListOrder.SIZE;
+                case "-r" -> reverse = true;
+                case "--sort" -> order = switch (String.valueOf(value)) {
+                    case "name" -> ListOrder.NAME;
+                    case "time" -> ListOrder.TIME;
+                    case "size" -> ListOrder.SIZE;
+                    default -> throw new IllegalArgumentException("Error: Invalid sort \"" + value + "\".");
+                };
+                case "--limit" -> limit = parseCount(value);
+                case "--offset" -> offset = parseCount(value);
+                case "--after" -> after = value;
+                default -> throw new IllegalArgumentException("Error: Invalid ls command.");
+            }
+        }
+
+        List<DirectoryOrFile> page = structure.listPage(order, reverse, after, offset, limit);
+        if(page.isEmpty()){
+            System.out.println("Current directory has no directories/files.");
+            return;
+        }
+        StringBuilder str = new StringBuilder();
+        for(DirectoryOrFile df : page)
+            str.append(longFormat ? df.printLong() + "\n" : df.getName() + " ");
+        System.out.println(longFormat ? str.substring(0, str.length() - 1) : str.toString());
+
+        DirectoryOrFile last = page.get(page.size() - 1);
+        if(page.size() == limit && !structure.listPage(order, reverse, order.cursorOf(last), 0, 1).isEmpty())
+            System.out.println("More entries, continue with: --after " + order.cursorOf(last));
+    }
+
+    /**
+     * Helper method for lsPageCommand.
+     * Parses the value of --limit or --offset.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>value</code> is not a non-negative number.
+     */
+    private static int parseCount(String value){
+        try{
+            int count = Integer.parseInt(String.valueOf(value));
+            if(count >= 0)
+                return count;
+        } catch(NumberFormatException ignored){
+        }
+        throw new IllegalArgumentException("Error: Invalid ls count \"" + value + "\".");
     }
 
     /**
@@ -56,6 +146,43 @@ public class BashTerminal {
             structure.changeDirectory(arg);
     }
 
+    /**
+     * Determines which mkdir command (mkdir or mkdir -p) should be run and creates a directory at each of
+     * the space-separated paths in <code>arg</code>.
+     *
+     * @param arg
+     *      Arguments of the mkdir command.
+     *
+     * @throws IllegalArgumentException
+     *      when no path is entered.
+     */
+    private static void mkdirCommand(String arg) throws NotADirectoryException, FullDirectoryException,
+            DFNotFoundException {
+        if(arg == null)
+            throw new IllegalArgumentException("Error: Invalid mkdir command.");
+        String[] paths = arg.split(" ");
+        if(paths[0].equals("-p"))
+            structure.makeDirectories(true, Arrays.copyOfRange(paths, 1, paths.length));
+        else
+            structure.makeDirectories(false, paths);
+    }
+
+    /**
+     * Runs the touch command by creating a file at each of the space-separated paths in <code>arg</code>.
+     *
+     * @param arg
+     *      Arguments of the touch command.
+     *
+     * @throws IllegalArgumentException
+     *      when no path is entered.
+     */
+    private static void touchCommand(String arg) throws NotADirectoryException, FullDirectoryException,
+            DFNotFoundException {
+        if(arg == null)
+            throw new IllegalArgumentException("Error: Invalid touch command.");
+        structure.makeFiles(arg.split(" "));
+    }
+
     /**
      * Runs the mv command by taking <code>paths[0]</code> as the source path and <code>paths[1]</code>
      * as the destination path.
@@ -73,6 +200,129 @@ public class BashTerminal {
         structure.move(paths[0], paths[1]);
     }
 
+    /**
+     * Determines which ln command should be run (ln or ln -s). ln creates a hard link to a file, while
+     * ln -s creates a symbolic link to any path.
+     *
+     * @param arg
+     *      Arguments of the ln command: an optional -s, the target and the path of the link.
+     *
+     * @throws IllegalArgumentException
+     *      when more/less than 2 paths are entered.
+     */
+    private static void lnCommand(String arg) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        String[] args = arg == null ? new String[0] : arg.split(" ");
+        boolean symbolic = args.length > 0 && args[0].equals("-s");
+        int i = symbolic ? 1 : 0;
+        if(args.length - i != 2)
+            throw new IllegalArgumentException("Error: Invalid ln command.");
+        if(symbolic)
+            structure.makeSymbolicLink(args[i], args[i + 1]);
+        else
+            structure.makeHardLink(args[i], args[i + 1]);
+    }
+
+    /**
+     * Determines which find command should be run. A single name runs the original find, which prints the
+     * path of the first match. Otherwise the arguments are an optional starting path followed by any of
+     * -name, -type, -size, -mtime and -newer, and the path of every match is printed.
+     *
+     * @param arg
+     *      Arguments of the find command.
+     *
+     * @throws IllegalArgumentException
+     *      when an option is unknown or misses its value.
+     */
+    private static void findCommand(String arg) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        if(arg == null)
+            throw new IllegalArgumentException("Error: Invalid find command.");
+        String[] tokens = arg.split(" ");
+        if(tokens.length == 1 && !tokens[0].startsWith("-")){
+            structure.find(tokens[0]);
+            return;
+        }
+
+        FindQuery query = new FindQuery();
+        String path = null;
+        int i = 0;
+        if(!tokens[0].startsWith("-"))
+            path = tokens[i++];
+        for(; i < tokens.length; i += 2){
+            if(i + 1 == tokens.length)
+                throw new IllegalArgumentException("Error: Missing value for " + tokens[i] + ".");
+            String value = tokens[i + 1];
+            switch (tokens[i]) {
+                case "-name" -> query.name(value);
+                case "-type" -> query.type(value);
+                case "-size" -> query.size(value);
+                case "-mtime" -> query.mtime(value);
+                case "-newer" -> query.newer(structure.resolve(value));
+                default -> throw new IllegalArgumentException("Error: Unknown find option \"" + tokens[i] + "\".");
+            }
+        }
+        for(DirectoryOrFile df : structure.findAll(path, query))
+            System.out.println(df.getPath());
+    }
+
+    /**
+     * Runs the export command by writing the directory/file at the first path to the archive file at
+     * the second path. With -z, the archive is compressed.
+     *
+     * @param arg
+     *      Arguments of the export command.
+     *
+     * @throws IllegalArgumentException
+     *      when more/less than 2 paths are entered.
+     */
+    private static void exportCommand(String arg) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        String[] paths = arg == null ? new String[0] : arg.split(" ");
+        boolean compress = paths.length > 0 && paths[0].equals("-z");
+        if(compress)
+            paths = Arrays.copyOfRange(paths, 1, paths.length);
+        if(paths.length != 2)
+            throw new IllegalArgumentException("Error: Invalid export command.");
+        structure.exportArchive(paths[0], paths[1], compress);
+    }
+
+    /**
+     * Runs the import-archive command by adding the subtree in the archive file at the first path to the
+     * directory at the second path.
+     *
+     * @param arg
+     *      Arguments of the import-archive command.
+     *
+     * @throws IllegalArgumentException
+     *      when more/less than 2 paths are entered.
+     */
+    private static void importCommand(String arg) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        String[] paths = arg == null ? new String[0] : arg.split(" ");
+        if(paths.length != 2)
+            throw new IllegalArgumentException("Error: Invalid import-archive command.");
+        structure.importArchive(paths[0], paths[1]);
+    }
+
+    /**
+     * Runs the diff command by comparing the contents of the directory at <code>paths[0]</code> with the
+     * contents of the directory at <code>paths[1]</code>.
+     *
+     * @param arg
+     *      Arguments of the diff command.
+     *
+     * @throws IllegalArgumentException
+     *      when more/less than 2 paths are entered.
+     */
+    private static void diffCommand(String arg) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        String[] paths = arg == null ? new String[0] : arg.split(" ");
+        if(paths.length != 2)
+            throw new IllegalArgumentException("Error: Invalid diff command.");
+        System.out.println(structure.diff(paths[0], paths[1]));
+    }
+
     /**
      * Determines which rm command should be run (rm or rm -r) based on <code>args[0]</code>.
      *
@@ -100,6 +350,81 @@ public class BashTerminal {
             structure.remove(args[i], removeDirectory);
     }
 
+    /**
+     * Queues a mkdir, touch, mv or rm command in the open batch instead of running it.
+     *
+     * @param cmd
+     *      The command part of the user input.
+     *
+     * @param args
+     *      Arguments of the input command.
+     *
+     * @throws IllegalArgumentException
+     *      when the arguments are invalid for the command.
+     */
+    private static void batchCommand(String cmd, String args){
+        if(args == null)
+            throw new IllegalArgumentException("Error: Invalid " + cmd + " command.");
+        switch (cmd) {
+            case "mkdir" -> {
+                String[] paths = args.split(" ");
+                boolean parents = paths[0].equals("-p");
+                if(parents && paths.length == 1)
+                    throw new IllegalArgumentException("Error: Invalid mkdir command.");
+                for(int i = parents ? 1 : 0; i < paths.length; i++){
+                    if(parents)
+                        batch.makeDirectories(paths[i]);
+                    else
+                        batch.makeDirectory(paths[i]);
+                }
+            }
+            case "touch" -> {
+                for(String path : args.split(" "))
+                    batch.makeFile(path);
+            }
+            case "mv" -> {
+                String[] paths = args.split(" ");
+                if(paths.length != 2)
+                    throw new IllegalArgumentException("Error: Invalid mv command.");
+                batch.move(paths[0], paths[1]);
+            }
+            default -> {
+                String[] names = args.split(" ");
+                boolean removeDirectory = names[0].equals("-r");
+                if(removeDirectory && names.length == 1)
+                    throw new IllegalArgumentException("Error: Invalid rm command.");
+                for(int i = removeDirectory ? 1 : 0; i < names.length; i++)
+                    batch.remove(names[i], removeDirectory);
+            }
+        }
+    }
+
+    /**
+     * Runs the batch commands: begin opens a batch, commit applies every queued command at once, and abort
+     * discards them.
+     *
+     * @param cmd
+     *      The batch command.
+     *
+     * @throws IllegalArgumentException
+     *      when no batch is open for commit/abort, or a batch is already open for begin.
+     */
+    private static void transactionCommand(String cmd) throws NotADirectoryException, FullDirectoryException,
+            DFNotFoundException {
+        if(cmd.equals("begin")){
+            if(batch != null)
+                throw new IllegalArgumentException("Error: A batch is already open.");
+            batch = structure.begin();
+            return;
+        }
+        if(batch == null)
+            throw new IllegalArgumentException("Error: No batch is open.");
+        TreeBatch closed = batch;
+        batch = null;
+        if(cmd.equals("commit"))
+            closed.commit();
+    }
+
     /**
      * Determines which command is entered and processes the corresponding method/operation.
      *
@@ -111,19 +436,167 @@ public class BashTerminal {
      */
     private static void commands(String cmd, String args) throws NotADirectoryException, FullDirectoryException,
             DFNotFoundException {
+        if(batch != null && (cmd.equals("mkdir") || cmd.equals("touch") || cmd.equals("mv") || cmd.equals("rm"))){
+            batchCommand(cmd, args);
+            return;
+        }
+        runCommand(cmd, args);
+    }
+
+    /**
+     * Helper method for commands and startJob.
+     * Processes the command immediately, even while a batch is open. Background jobs call it directly, so a
+     * batch opened after a job was started never receives the job's operation.
+     *
+     * @param cmd
+     *      The command part of the user input.
+     *
+     * @param args
+     *      Arguments of the input command.
+     */
+    private static void runCommand(String cmd, String args) throws NotADirectoryException,
+            FullDirectoryException, DFNotFoundException {
         switch (cmd) {
+            case "begin", "commit", "abort" -> transactionCommand(cmd);
             case "pwd" -> System.out.println(structure.presentWorkingDirectory());
             case "ls" -> lsCommand(args);
             case "cd" -> cdCommand(args);
-            case "mkdir" -> structure.makeDirectory(args);
-            case "touch" -> structure.makeFile(args);
+            case "mkdir" -> mkdirCommand(args);
+            case "touch" -> touchCommand(args);
             case "mv" -> mvCommand(args.split(" "));
-            case "find" -> structure.find(args);
+            case "ln" -> lnCommand(args);
+            case "find" -> findCommand(args);
             case "rm" -> rmCommand(args.split(" "));
+            case "diff" -> diffCommand(args);
+            case "export" -> exportCommand(args);
+            case "import-archive" -> importCommand(args);
+            case "jobs" -> jobsCommand();
+            case "fg" -> fgCommand(args);
+            case "wait" -> waitCommand(args);
+            case "kill" -> findJob(args).kill();
             default -> System.out.println("Please enter a valid command.");
         }
     }
 
+    /**
+     * Runs the command line <code>line</code> as a background job.
+     *
+     * @param line
+     *      The command line without the trailing &amp;.
+     *
+     * @throws IllegalArgumentException
+     *      when the command is empty, a batch is open, or the command cannot run in the background.
+     */
+    private static void startJob(String line){
+        if(line.isEmpty())
+            throw new IllegalArgumentException("Error: Invalid command.");
+        if(batch != null)
+            throw new IllegalArgumentException("Error: Commands cannot run in the background during a batch.");
+
+        int indexToSeparateCmd = line.indexOf(" ");
+        String cmd = indexToSeparateCmd == -1 ? line : line.substring(0, indexToSeparateCmd);
+        String args = indexToSeparateCmd == -1 ? null : line.substring(indexToSeparateCmd + 1);
+        switch (cmd) {
+            case "cd", "exit", "begin", "commit", "abort", "jobs", "fg", "wait", "kill" ->
+                    throw new IllegalArgumentException("Error: " + cmd + " cannot run in the background.");
+        }
+
+        int id = nextJobId++;
+        jobs.put(id, new Job(id, line, () -> runCommand(cmd, args)));
+        System.out.println("[" + id + "]");
+    }
+
+    /**
+     * Returns the job referred to by <code>arg</code>.
+     *
+     * @param arg
+     *      "%n" for job number n, or null for the most recent job.
+     *
+     * @return
+     *      The referred job.
+     *
+     * @throws IllegalArgumentException
+     *      when no such job exists.
+     */
+    private static Job findJob(String arg){
+        Job job = null;
+        if(arg == null)
+            job = jobs.isEmpty() ? null : jobs.lastEntry().getValue();
+        else if(arg.startsWith("%")){
+            try{
+                job = jobs.get(Integer.parseInt(arg.substring(1)));
+            } catch(NumberFormatException ignored){
+            }
+        }
+        if(job == null)
+            throw new IllegalArgumentException("Error: No such job \"" + (arg == null ? "" : arg) + "\".");
+        return job;
+    }
+
+    /**
+     * Runs the jobs command by listing every background job. Finished jobs stay listed until their
+     * output is collected with fg or wait.
+     */
+    private static void jobsCommand(){
+        for(Job job : jobs.values())
+            System.out.println(job);
+    }
+
+    /**
+     * Runs the fg command by waiting for a job and printing its output.
+     *
+     * @param arg
+     *      "%n" for job number n, or null for the most recent job.
+     */
+    private static void fgCommand(String arg){
+        Job job = findJob(arg);
+        System.out.println(job);
+        finishJob(job);
+    }
+
+    /**
+     * Runs the wait command by waiting for a job, or for every job if no job is given, and printing
+     * the output of the waited jobs.
+     *
+     * @param arg
+     *      "%n" for job number n, or null for every job.
+     */
+    private static void waitCommand(String arg){
+        if(arg != null){
+            finishJob(findJob(arg));
+            return;
+        }
+        for(Job job : List.copyOf(jobs.values()))
+            finishJob(job);
+    }
+
+    /**
+     * Helper method for fgCommand and waitCommand.
+     * Waits for <code>job</code>, prints its output and forgets it.
+     */
+    private static void finishJob(Job job){
+        try{
+            job.await();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.print(job.drainOutput());
+        jobs.remove(job.getId());
+        reportedJobs.remove(job.getId());
+    }
+
+    /**
+     * Prints a line for every background job that finished since the last prompt. Their output is kept
+     * until fg or wait is run.
+     */
+    private static void reportFinishedJobs(){
+        for(Job job : jobs.values()){
+            if(!job.isRunning() && reportedJobs.add(job.getId()))
+                System.out.println(job);
+        }
+    }
+
     /**
      * Based on the input command <code>cmd</code>, determines whether the system should
      * continue to run or terminate.
@@ -143,6 +616,10 @@ public class BashTerminal {
             throw new IllegalArgumentException("Error: Invalid command.");
         if(cmd.equals("exit"))
             return false;
+        if(cmd.endsWith("&")){
+            startJob(cmd.substring(0, cmd.length() - 1).trim());
+            return true;
+        }
         int indexToSeparateCmd = cmd.indexOf(" ");
         String args = null;
         if(indexToSeparateCmd != -1){
@@ -161,6 +638,7 @@ public class BashTerminal {
      */
     private static void startLinux(String user){
         while(true){
+            reportFinishedJobs();
             System.out.print(user + ": ~/" + structure.getCursor().getPath() + "$ ");
             try{
                 if(!(runCommands(input.nextLine().trim()))){
@@ -169,7 +647,7 @@ public class BashTerminal {
                     break;
                 }
             } catch(IllegalArgumentException | InputMismatchException | NotADirectoryException |
-                    FullDirectoryException | DFNotFoundException e){
+                    FullDirectoryException | DFNotFoundException | UncheckedIOException e){
                 System.out.println(e.getMessage());
             }
         }
@@ -180,6 +658,7 @@ public class BashTerminal {
      */
     public static void main(String[] args){
         structure = new DirectoryTree();
+        Job.captureOutput();
         System.out.println("Starting Bash Terminal...");
         System.out.print("Please enter a username: ");
         input = new Scanner(System.in);
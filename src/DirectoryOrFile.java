@@ -1,5 +1,16 @@
-import java.util.Arrays;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The DirectoryOrFile class represents a directory/file object. It contains information such as the name
@@ -9,12 +20,26 @@ import java.util.InputMismatchException;
  * @author Zhen Wei Liao
  */
 public class DirectoryOrFile {
+    private static final DateTimeFormatter LONG_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
     private String name;
     private boolean isFile = false;
     private DirectoryOrFile[] childrenDF = new DirectoryOrFile[10];
     private String path = "root";
     private int numOfChildren = 0;
     private DirectoryOrFile parent = null;
+    private volatile SubtreeStore store = null;
+    private long segmentOffset = -1;
+    private long lastAccess = 0;
+    private long contentHash = 0;
+    private long created = System.currentTimeMillis();
+    private long modified = created;
+    private long accessed = created;
+    private long latestModified = created;
+    private long size = 0;
+    private String linkTarget = null;
+    private DirectoryOrFile linkedFile = null;
+    private List<DirectoryOrFile> hardLinks = null;
 
 
     /**
@@ -47,6 +72,47 @@ public class DirectoryOrFile {
         this.isFile = isFile;
     }
 
+    /**
+     * Constructor creates a symbolic link with a specified name. A symbolic link behaves like a file in the
+     * structure, and is followed to <code>linkTarget</code> when a path goes through it.
+     *
+     * @param name
+     *      The name of the symbolic link.
+     *
+     * @param linkTarget
+     *      Absolute path, or path relative to the directory containing the link, that the link points to.
+     */
+    public DirectoryOrFile(String name, String linkTarget){
+        this.name = name;
+        this.isFile = true;
+        this.linkTarget = linkTarget;
+    }
+
+    /**
+     * Constructor creates a hard link with a specified name to an existing file. The hard link is a separate
+     * entry of the structure, but shares the timestamps and size of <code>file</code>, so that a change made
+     * through either name is seen through every name.
+     *
+     * @param name
+     *      The name of the hard link.
+     *
+     * @param file
+     *      The file the hard link shares its data with.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>file</code> is a directory or a symbolic link.
+     */
+    public DirectoryOrFile(String name, DirectoryOrFile file){
+        if(file == null || !file.isFile || file.linkTarget != null)
+            throw new IllegalArgumentException("Error: Hard links can only point to files.");
+        this.name = name;
+        this.isFile = true;
+        linkedFile = file.data();
+        if(linkedFile.hardLinks == null)
+            linkedFile.hardLinks = new ArrayList<>();
+        linkedFile.hardLinks.add(this);
+    }
+
 
     /**
      * Accessor. Returns the name of the DirectoryOrFile instance.
@@ -65,7 +131,10 @@ public class DirectoryOrFile {
      *      The name of the directory/file.
      */
     public void setName(String name) {
+        long before = getHash();
         this.name = name;
+        if(parent != null)
+            parent.propagate(getHash() - before);
     }
 
     /**
@@ -87,7 +156,10 @@ public class DirectoryOrFile {
      *      False if the instance is a directory.
      */
     public void setFile(boolean isFile) {
+        long before = getHash();
         this.isFile = isFile;
+        if(parent != null)
+            parent.propagate(getHash() - before);
     }
 
     /**
@@ -97,6 +169,7 @@ public class DirectoryOrFile {
      *      Array containing other DirectoryOrFile objects that connects to the current instance.
      */
     public DirectoryOrFile[] getChildrenDF() {
+        ensureLoaded();
         return childrenDF;
     }
 
@@ -107,9 +180,300 @@ public class DirectoryOrFile {
      *      Array containing other DirectoryOrFile objects that connects to the current instance.
      */
     public void setChildrenDF(DirectoryOrFile[] childrenDF) {
+        store = null;
+        segmentOffset = -1;
+        this.childrenDF = childrenDF;
+        rehash();
+    }
+
+    /**
+     * Replaces the children of the current instance without updating any hash. The caller is expected to
+     * call <code>rehash()</code> once the structure is consistent again.
+     *
+     * @param childrenDF
+     *      Array containing other DirectoryOrFile objects that connects to the current instance.
+     */
+    void restoreChildren(DirectoryOrFile[] childrenDF){
         this.childrenDF = childrenDF;
     }
 
+    /**
+     * Returns the structural hash of the current instance. The hash covers the name, the type and every
+     * directory/file under the current instance, but not the order of the children. It's kept up to date
+     * on every change, so reading it takes constant time.
+     *
+     * @return
+     *      A 64-bit hash of the subtree rooted at the current instance.
+     */
+    public long getHash(){
+        long h = isFile ? 0x9E3779B97F4A7C15L : 0xC2B2AE3D27D4EB4FL;
+        if(name != null)
+            for(int i = 0; i < name.length(); i++)
+                h = (h ^ name.charAt(i)) * 0x100000001B3L;
+        if(linkTarget != null)
+            for(int i = 0; i < linkTarget.length(); i++)
+                h = (h ^ ~linkTarget.charAt(i)) * 0x100000001B3L;
+        return mix(h + contentHash * 0xFF51AFD7ED558CCDL);
+    }
+
+    /**
+     * Accessor. Returns the order-insensitive combination of the hashes of the children.
+     *
+     * @return
+     *      Sum of the hashes of the directories/files inside the current instance.
+     */
+    long getContentHash(){
+        return contentHash;
+    }
+
+    /**
+     * Modifier. Modifies the combination of the hashes of the children without updating any directory
+     * above the current instance.
+     *
+     * @param contentHash
+     *      Sum of the hashes of the directories/files inside the current instance.
+     */
+    void setContentHash(long contentHash){
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Helper method for getHash.
+     * Scrambles the bits of <code>h</code> so that similar subtrees end up with unrelated hashes.
+     */
+    private static long mix(long h){
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Adds <code>delta</code> to the content hash of the current instance and passes the resulting change
+     * of its own hash on to every directory above it.
+     *
+     * @param delta
+     *      Change in the sum of the hashes of the children.
+     */
+    private void propagate(long delta){
+        for(DirectoryOrFile df = this; df != null && delta != 0; df = df.parent){
+            long before = df.getHash();
+            df.contentHash += delta;
+            delta = df.getHash() - before;
+        }
+    }
+
+    /**
+     * Recomputes the content hash of the current instance from its children in memory and passes the
+     * change on to every directory above it.
+     */
+    void rehash(){
+        long sum = 0;
+        for(DirectoryOrFile df : childrenDF)
+            if(df != null)
+                sum += df.getHash();
+        propagate(sum - contentHash);
+    }
+
+    /**
+     * Accessor. Returns the time the current instance was created.
+     *
+     * @return
+     *      Creation time in milliseconds since the epoch.
+     */
+    public long getCreated() {
+        return data().created;
+    }
+
+    /**
+     * Accessor. Returns the time the current instance was last modified. A directory is modified when a
+     * directory/file is added to or removed from it.
+     *
+     * @return
+     *      Modification time in milliseconds since the epoch.
+     */
+    public long getModified() {
+        return data().modified;
+    }
+
+    /**
+     * Accessor. Returns the time the current instance was last accessed.
+     *
+     * @return
+     *      Access time in milliseconds since the epoch.
+     */
+    public long getAccessed() {
+        return data().accessed;
+    }
+
+    /**
+     * Accessor. Returns the latest modification time of the current instance and every directory/file
+     * under it. Removing a directory/file does not lower it, so it's an upper bound that lets a search
+     * skip subtrees that cannot contain anything modified after a given time.
+     *
+     * @return
+     *      Latest modification time in the subtree, in milliseconds since the epoch.
+     */
+    public long getLatestModified() {
+        return latestModified;
+    }
+
+    /**
+     * Accessor. Returns the size of the current instance.
+     *
+     * @return
+     *      Size in bytes, 0 for directories.
+     */
+    public long getSize() {
+        return data().size;
+    }
+
+    /**
+     * Modifier. Modifies the size of the current instance and marks it as modified.
+     *
+     * @param size
+     *      Size in bytes.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>size</code> is negative or the current instance is a directory.
+     */
+    public void setSize(long size) {
+        if(size < 0 || !isFile)
+            throw new IllegalArgumentException("Error: Only files can have a non-negative size.");
+        data().size = size;
+        markModified();
+    }
+
+    /**
+     * Marks the current instance as modified now, and raises the latest modification time of every
+     * directory above it, and above every hard link sharing its data.
+     */
+    void markModified(){
+        long now = System.currentTimeMillis();
+        DirectoryOrFile data = data();
+        data.modified = now;
+        data.accessed = now;
+        data.raiseLatestModified(now);
+        if(data.hardLinks != null)
+            for(DirectoryOrFile link : data.hardLinks)
+                link.raiseLatestModified(now);
+    }
+
+    /**
+     * Helper method for markModified.
+     * Raises the latest modification time of the current instance and every directory above it.
+     */
+    private void raiseLatestModified(long time){
+        for(DirectoryOrFile df = this; df != null && df.latestModified < time; df = df.parent)
+            df.latestModified = time;
+    }
+
+    /**
+     * Marks the current instance as accessed now.
+     */
+    void markAccessed(){
+        data().accessed = System.currentTimeMillis();
+    }
+
+    /**
+     * Helper method for the metadata accessors.
+     * Returns the object holding the timestamps and size of the current instance.
+     *
+     * @return
+     *      The file a hard link shares its data with, otherwise the current instance itself.
+     */
+    private DirectoryOrFile data(){
+        return linkedFile == null ? this : linkedFile;
+    }
+
+    /**
+     * Indicates whether the current instance is a symbolic link.
+     *
+     * @return
+     *      True if the current instance points to a path, otherwise false.
+     */
+    public boolean isSymbolicLink(){
+        return linkTarget != null;
+    }
+
+    /**
+     * Accessor. Returns the path a symbolic link points to.
+     *
+     * @return
+     *      The target path of the symbolic link, null if the current instance is not a symbolic link.
+     */
+    public String getLinkTarget() {
+        return linkTarget;
+    }
+
+    /**
+     * Indicates whether the current instance shares its data with another entry through a hard link.
+     *
+     * @return
+     *      True if the current instance is a hard link or has hard links pointing to it, otherwise false.
+     */
+    public boolean isHardLinked(){
+        return linkedFile != null || hardLinks != null;
+    }
+
+    /**
+     * Releases the hard links of the current instance and of every directory/file under it, once the subtree
+     * has been removed from the structure for good. A removed hard link is taken off the list of its file,
+     * and a removed file hands its data over to one of its remaining hard links. Subtrees holding hard links
+     * are never evicted, so only resident children are visited.
+     */
+    void releaseHardLinks(){
+        ArrayDeque<DirectoryOrFile> stack = new ArrayDeque<>();
+        stack.push(this);
+        while(!stack.isEmpty()){
+            DirectoryOrFile df = stack.pop();
+            if(df.linkedFile != null){
+                DirectoryOrFile file = df.linkedFile;
+                file.hardLinks.removeIf(link -> link == df);
+                if(file.hardLinks.isEmpty())
+                    file.hardLinks = null;
+                df.takeData(file);
+            }
+            else if(df.hardLinks != null){
+                DirectoryOrFile heir = df.hardLinks.remove(0);
+                heir.takeData(df);
+                if(!df.hardLinks.isEmpty()){
+                    heir.hardLinks = df.hardLinks;
+                    for(DirectoryOrFile link : heir.hardLinks)
+                        link.linkedFile = heir;
+                }
+                df.hardLinks = null;
+            }
+            for(DirectoryOrFile child : df.childrenDF)
+                if(child != null)
+                    stack.push(child);
+        }
+    }
+
+    /**
+     * Helper method for releaseHardLinks.
+     * Copies the timestamps and size of <code>file</code> to the current instance, which stops sharing them.
+     */
+    private void takeData(DirectoryOrFile file){
+        linkedFile = null;
+        created = file.created;
+        modified = file.modified;
+        accessed = file.accessed;
+        size = file.size;
+        latestModified = Math.max(latestModified, modified);
+    }
+
+    /**
+     * Modifier. Modifies every timestamp and the size of the current instance without touching any
+     * directory above it. Used when a directory/file is rebuilt from storage.
+     */
+    void restoreMetadata(long created, long modified, long accessed, long latestModified, long size){
+        this.created = created;
+        this.modified = modified;
+        this.accessed = accessed;
+        this.latestModified = latestModified;
+        this.size = size;
+    }
+
     /**
      * Accessor. Returns the path to the current instance.
      *
@@ -138,6 +502,77 @@ public class DirectoryOrFile {
      */
     public DirectoryOrFile getParent(){ return parent;}
 
+    /**
+     * Modifier. Modifies the parent directory of the current instance without updating either directory.
+     *
+     * @param parent
+     *      Parent Directory of the current instance.
+     */
+    void setParent(DirectoryOrFile parent){
+        this.parent = parent;
+    }
+
+    /**
+     * Indicates whether the directories/files inside the current instance have been evicted to disk.
+     * An evicted instance is loaded back as soon as its children are accessed.
+     *
+     * @return
+     *      True if the current instance is a stub whose children live in a segment file, false otherwise.
+     */
+    public boolean isEvicted(){
+        return store != null;
+    }
+
+    /**
+     * Accessor. Returns the position of the evicted children in the segment file.
+     *
+     * @return
+     *      Offset in the segment file, -1 if the current instance is not evicted.
+     */
+    long getSegmentOffset(){
+        return segmentOffset;
+    }
+
+    /**
+     * Accessor. Returns the number of directories/files inside the current instance.
+     *
+     * @return
+     *      Number of children, which is kept up to date for evicted stubs as well.
+     */
+    int getNumOfChildren(){
+        return numOfChildren;
+    }
+
+    /**
+     * Modifier. Modifies the number of directories/files inside the current instance.
+     *
+     * @param numOfChildren
+     *      Number of children.
+     */
+    void setNumOfChildren(int numOfChildren){
+        this.numOfChildren = numOfChildren;
+    }
+
+    /**
+     * Accessor. Returns the logical time the current instance was last accessed by its DirectoryTree.
+     *
+     * @return
+     *      Logical access time, 0 if it has never been accessed with tiered storage enabled.
+     */
+    long getLastAccess(){
+        return lastAccess;
+    }
+
+    /**
+     * Modifier. Modifies the logical time the current instance was last accessed by its DirectoryTree.
+     *
+     * @param lastAccess
+     *      Logical access time.
+     */
+    void setLastAccess(long lastAccess){
+        this.lastAccess = lastAccess;
+    }
+
     /**
      * Indicates whether the current instance has reached a maximum of 10 childrenDF.
      *
@@ -156,6 +591,7 @@ public class DirectoryOrFile {
      *
      */
     public DirectoryOrFile find(String name){
+        ensureLoaded();
         for(DirectoryOrFile df : childrenDF){
             if(df != null && df.name.equals(name))
                 return df;
@@ -176,6 +612,7 @@ public class DirectoryOrFile {
         if(isFile)
             throw new IllegalArgumentException("Error: File cannot contain directories/files.");
 
+        ensureLoaded();
         StringBuilder str = new StringBuilder();
 
         for(DirectoryOrFile df : childrenDF)
@@ -188,6 +625,18 @@ public class DirectoryOrFile {
             return "Current directory has no directories/files.";
     }
 
+    /**
+     * Returns a single-line description of the current instance, as printed by <code>ls -l</code>.
+     *
+     * @return
+     *      The type ("d" or "-"), size, modification time and name, separated by spaces.
+     */
+    public String printLong(){
+        String time = Instant.ofEpochMilli(getModified()).atZone(ZoneId.systemDefault()).format(LONG_TIME_FORMAT);
+        return String.format("%s %10d %s %s", linkTarget != null ? "l" : (isFile ? "-" : "d"), getSize(), time,
+                linkTarget != null ? name + " -> " + linkTarget : name);
+    }
+
     /**
      * Views the current instance as the root and print out all the directories/files under it.
      *
@@ -202,19 +651,50 @@ public class DirectoryOrFile {
         if(height < 1)
             throw new IllegalArgumentException("Error: Height must be positive.");
 
-        String indent = "    ".repeat(height - 1);
-        if(isFile())
-            System.out.println(indent + "- " + name);
-        else{
-            System.out.println(indent + "|- " + name);
-            height++;
-            for(DirectoryOrFile df : childrenDF){
-                if(df != null)
-                    df.printStructure(height);
-            }
+        Iterator<TraversalEntry> it = iterator(TraversalOrder.PRE_ORDER);
+        while(it.hasNext()){
+            TraversalEntry entry = it.next();
+            DirectoryOrFile df = entry.getDF();
+            String indent = "    ".repeat(height + entry.getDepth() - 1);
+            System.out.println(indent + (df.isFile() ? "- " : "|- ") + df.name
+                    + (df.isSymbolicLink() ? " -> " + df.linkTarget : ""));
         }
     }
 
+    /**
+     * Returns an iterator that lazily visits the current instance and every directory/file under it.
+     *
+     * @param order
+     *      The order in which the directories/files are visited.
+     *
+     * @return
+     *      A non-recursive iterator over the subtree, where the current instance has a depth of 0.
+     */
+    public Iterator<TraversalEntry> iterator(TraversalOrder order){
+        return new SubtreeIterator(this, order);
+    }
+
+    /**
+     * Returns a splittable spliterator over the current instance and every directory/file under it.
+     *
+     * @return
+     *      A spliterator covering the subtree of the current instance.
+     */
+    public Spliterator<DirectoryOrFile> spliterator(){
+        return new SubtreeSpliterator(this);
+    }
+
+    /**
+     * Returns a sequential stream over the current instance and every directory/file under it.
+     * Call <code>parallel()</code> on the result to walk a large subtree on several threads.
+     *
+     * @return
+     *      A stream of the directories/files in the subtree of the current instance.
+     */
+    public Stream<DirectoryOrFile> stream(){
+        return StreamSupport.stream(spliterator(), false);
+    }
+
     /**
      * Adds a directory/file to the current instance.
      *
@@ -238,6 +718,19 @@ public class DirectoryOrFile {
             throw new IllegalArgumentException("Error: Directory/File \"" + newChild.name +
                     "\" already existed in the current directory.");
 
+        adopt(newChild);
+        propagate(newChild.getHash());
+        markModified();
+    }
+
+    /**
+     * Helper method for addChild and SubtreeStore.
+     * Places <code>newChild</code> in the first empty slot without validating it or updating any hash.
+     *
+     * @param newChild
+     *      A DirectoryOrFile object connecting to the current instance.
+     */
+    void adopt(DirectoryOrFile newChild){
         for(int i = 0; i < childrenDF.length; i++){
             if(childrenDF[i] == null){
                 newChild.setPath(path + "/" + newChild.name);
@@ -249,6 +742,102 @@ public class DirectoryOrFile {
         }
     }
 
+    /**
+     * Turns the current instance into a stub whose children are stored in <code>store</code> at
+     * <code>offset</code>. The in-memory children are released.
+     *
+     * @param store
+     *      The store holding the evicted children.
+     *
+     * @param offset
+     *      Position of the evicted children in the segment file.
+     */
+    void evict(SubtreeStore store, long offset){
+        this.store = store;
+        segmentOffset = offset;
+        childrenDF = new DirectoryOrFile[0];
+    }
+
+    /**
+     * Loads the evicted children back from the segment file if the current instance is a stub. Readers
+     * reaching the same stub at once load it only once.
+     *
+     * @throws UncheckedIOException
+     *      when the segment file cannot be read. The current instance stays a stub.
+     */
+    private void ensureLoaded(){
+        if(store == null)
+            return;
+
+        synchronized(this){
+            SubtreeStore evictedTo = store;
+            if(evictedTo == null)
+                return;
+            int evictedChildren = numOfChildren;
+            childrenDF = new DirectoryOrFile[10];
+            numOfChildren = 0;
+            try{
+                evictedTo.load(this, segmentOffset);
+                segmentOffset = -1;
+                store = null;
+            } catch(UncheckedIOException e){
+                evict(evictedTo, segmentOffset);
+                numOfChildren = evictedChildren;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Accessor. Returns the children array as it is in memory, without loading an evicted stub.
+     *
+     * @return
+     *      The in-memory children array, which is empty for an evicted stub.
+     */
+    DirectoryOrFile[] residentChildren(){
+        return childrenDF;
+    }
+
+    /**
+     * Counts the directories/files under the current instance that are held in memory, including the
+     * current instance itself. Evicted stubs are counted but their children are not loaded.
+     *
+     * @return
+     *      Number of resident DirectoryOrFile objects in the subtree.
+     */
+    int residentSize(){
+        int count = 0;
+        ArrayDeque<DirectoryOrFile> stack = new ArrayDeque<>();
+        stack.push(this);
+        while(!stack.isEmpty()){
+            DirectoryOrFile df = stack.pop();
+            count++;
+            for(DirectoryOrFile child : df.childrenDF)
+                if(child != null)
+                    stack.push(child);
+        }
+        return count;
+    }
+
+    /**
+     * Recomputes the path of every directory/file under the current instance from the path of its parent,
+     * once the current instance has been added to a directory. Evicted stubs get their children's paths
+     * when they're loaded back.
+     */
+    void updateDescendantPaths(){
+        ArrayDeque<DirectoryOrFile> stack = new ArrayDeque<>();
+        stack.push(this);
+        while(!stack.isEmpty()){
+            DirectoryOrFile df = stack.pop();
+            for(DirectoryOrFile child : df.childrenDF){
+                if(child != null){
+                    child.path = df.path + "/" + child.name;
+                    stack.push(child);
+                }
+            }
+        }
+    }
+
     /**
      * Helper method for removeLink.
      * Shifts all items with an index greater than <code>position</code> to the left by one unit.
@@ -286,6 +875,7 @@ public class DirectoryOrFile {
         if(df == null || df.isEmpty())
             return null;
 
+        ensureLoaded();
         for(int i = 0; i < childrenDF.length; i++){
             if(childrenDF[i] != null && childrenDF[i].name.equals(df)) {
                 DirectoryOrFile removedDF = childrenDF[i];
@@ -293,6 +883,9 @@ public class DirectoryOrFile {
                     throw new InputMismatchException("Error: Can't remove \"" + df + "\": Is "
                             + (removedDF.isFile ? "File" : "Directory"));
                 shift(i);
+                numOfChildren--;
+                propagate(-removedDF.getHash());
+                markModified();
                 return removedDF;
             }
         }
@@ -300,13 +893,15 @@ public class DirectoryOrFile {
     }
 
     /**
-     * Checks if the equality of two DirectoryOrFile objects based on their names and types.
+     * Checks if the equality of two DirectoryOrFile objects based on their names, types, link targets and the
+     * directories/files under them, regardless of the order of the children. Objects with different
+     * hashes are rejected in constant time; otherwise the subtrees are compared to rule out collisions.
      *
      * @param obj
      *      Object being compared to current instance.
      *
      * @return
-     *      True if two DirectoryOrFile objects has the same name and type, otherwise false.
+     *      True if two DirectoryOrFile objects has the same name, type and contents, otherwise false.
      */
     @Override
     public boolean equals(Object obj){
@@ -315,18 +910,38 @@ public class DirectoryOrFile {
 
         DirectoryOrFile objAsDF = (DirectoryOrFile) obj;
 
-        return (isFile == objAsDF.isFile && name.equals(objAsDF.name)
-                && Arrays.equals(childrenDF, objAsDF.childrenDF));
+        if(getHash() != objAsDF.getHash() || isFile != objAsDF.isFile || !Objects.equals(name, objAsDF.name)
+                || !Objects.equals(linkTarget, objAsDF.linkTarget) || numOfChildren != objAsDF.numOfChildren)
+            return false;
+
+        for(DirectoryOrFile df : getChildrenDF())
+            if(df != null && !df.equals(objAsDF.find(df.name)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns a hash code consistent with <code>equals</code>, derived from the structural hash.
+     *
+     * @return
+     *      Hash code of the subtree rooted at the current instance.
+     */
+    @Override
+    public int hashCode(){
+        return Long.hashCode(getHash());
     }
 
     /**
      * Returns a string representation of the DirectoryOrFile object.
      *
      * @return
-     *      A string representation of the DirectoryOrFile object in the format of "type: name"
+     *      A string representation of the DirectoryOrFile object in the format of "type: name", or
+     *      "Link: name -> target" for a symbolic link.
      */
     @Override
     public String toString(){
+        if(linkTarget != null)
+            return "Link: " + name + " -> " + linkTarget;
         return (isFile ? "File" : "Directory") + ": " + name;
     }
 }
@@ -1,14 +1,42 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * The DirectoryTree class represents the Linux File Hierarchy Structure. It contains a reference to the root
  * directory, a cursor pointing to the working directory, and methods for modifying/displaying the structure.
  *
+ * The structure may be used by background jobs alongside the terminal. Commands that only read it share a
+ * read lock, while commands that modify it take the write lock. Moving the cursor doesn't modify the
+ * structure, so it only takes the read lock and never waits for a background walk to finish. Access recency
+ * used by tiered storage is tracked on a best-effort basis.
+ *
+ * Symbolic links are followed when a path goes through them. Their targets are cached until a directory
+ * walked to reach them loses a child, and a chain of more than MAX_LINK_HOPS links is reported as a loop.
+ *
  * @author Zhen Wei Liao
  */
 public class DirectoryTree {
     private final DirectoryOrFile root = new DirectoryOrFile("root");
-    private DirectoryOrFile cursor = root;
+    private volatile DirectoryOrFile cursor = root;
+    private SubtreeStore store = null;
+    private long clock = 0;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final int MAX_LINK_HOPS = 40;
+    private final LinkCache linkCache = new LinkCache();
 
     /**
      * Constructor creates a DirectoryTree object with only the root directory presented.
@@ -16,6 +44,137 @@ public class DirectoryTree {
     public DirectoryTree(){
     }
 
+    /**
+     * Enables tiered storage. Once more directories/files are held in memory than <code>budget</code>
+     * allows, the least recently accessed subtrees are evicted to <code>segmentPath</code> and left as
+     * stubs, which are loaded back as soon as they are reached again.
+     *
+     * @param segmentPath
+     *      Path of the segment file holding the evicted subtrees.
+     *
+     * @param budget
+     *      Maximum number of directories/files to keep in memory.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>budget</code> is not positive or tiered storage is already enabled.
+     *
+     * @throws IOException
+     *      when the segment file cannot be created.
+     */
+    public void enableTieredStorage(String segmentPath, int budget) throws IOException {
+        lock.writeLock().lock();
+        try{
+            if(budget < 1)
+                throw new IllegalArgumentException("Error: Memory budget must be positive.");
+            if(store != null)
+                throw new IllegalArgumentException("Error: Tiered storage is already enabled.");
+            store = new SubtreeStore(segmentPath, budget, root.residentSize());
+            enforceBudget();
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Accessor. Returns the store holding the evicted subtrees, which exposes the eviction and
+     * fault counters.
+     *
+     * @return
+     *      The SubtreeStore of the structure, null if tiered storage is not enabled.
+     */
+    public SubtreeStore getStore(){
+        return store;
+    }
+
+    /**
+     * Marks <code>df</code> and the directories above it as the most recently accessed ones.
+     *
+     * @param df
+     *      The accessed directory/file.
+     */
+    private void touch(DirectoryOrFile df){
+        if(store == null)
+            return;
+        clock++;
+        for(; df != null; df = df.getParent())
+            df.setLastAccess(clock);
+    }
+
+    /**
+     * Evicts the least recently accessed subtrees until the number of directories/files held in memory
+     * drops to three quarters of the budget. The working directory and the directories above it are
+     * never evicted.
+     */
+    private void enforceBudget(){
+        if(store == null || !store.isOverBudget())
+            return;
+        lock.writeLock().lock();
+        try{
+            evictColdSubtrees();
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Helper method for enforceBudget.
+     * Evicts the least recently accessed subtrees while holding the write lock. Subtrees holding hard links
+     * stay in memory, since the entries sharing their data could not be rebuilt from the segment file.
+     */
+    private void evictColdSubtrees(){
+        List<TraversalEntry> candidates = new ArrayList<>();
+        Map<DirectoryOrFile, Boolean> pinned = new IdentityHashMap<>();
+        ArrayDeque<TraversalEntry> stack = new ArrayDeque<>();
+        stack.push(new TraversalEntry(root, 0));
+        while(!stack.isEmpty()){
+            TraversalEntry entry = stack.pop();
+            DirectoryOrFile df = entry.getDF();
+            if(df != root && !df.isFile() && !df.isEvicted() && df.getNumOfChildren() > 0)
+                candidates.add(entry);
+            if(df.isHardLinked()){
+                DirectoryOrFile dir = df.getParent();
+                while(dir != null && pinned.put(dir, true) == null)
+                    dir = dir.getParent();
+            }
+            for(DirectoryOrFile child : df.residentChildren())
+                if(child != null)
+                    stack.push(new TraversalEntry(child, entry.getDepth() + 1));
+        }
+        for(DirectoryOrFile df = cursor; df != null; df = df.getParent())
+            df.setLastAccess(Long.MAX_VALUE);
+        candidates.sort(Comparator.comparingLong((TraversalEntry entry) -> entry.getDF().getLastAccess())
+                .thenComparingInt(TraversalEntry::getDepth));
+
+        long lowWatermark = store.getBudget() * 3L / 4;
+        for(TraversalEntry entry : candidates){
+            if(store.getResidentNodes() <= lowWatermark)
+                break;
+            DirectoryOrFile df = entry.getDF();
+            if(df.getLastAccess() == Long.MAX_VALUE || pinned.containsKey(df) || insideEvicted(df))
+                continue;
+            store.evict(df);
+            linkCache.invalidateSubtree(df);
+        }
+        touch(cursor);
+    }
+
+    /**
+     * Helper method for enforceBudget.
+     * Checks whether one of the directories above <code>df</code> has been evicted.
+     *
+     * @param df
+     *      The directory/file being checked.
+     *
+     * @return
+     *      True if <code>df</code> is no longer reachable from the root, otherwise false.
+     */
+    private static boolean insideEvicted(DirectoryOrFile df){
+        for(df = df.getParent(); df != null; df = df.getParent())
+            if(df.isEvicted())
+                return true;
+        return false;
+    }
+
     /**
      * Moves back to the root directory.
      */
@@ -71,11 +230,20 @@ public class DirectoryTree {
     public void changeDirectory(String name) throws NotADirectoryException, DFNotFoundException {
         if(name == null || name.isEmpty())
             throw new IllegalArgumentException("Error: Name cannot be empty.");
-        if(name.equals(cursor.getName()))
-            return;
-        DirectoryOrFile directory = cursor.find(name);
-        checkDF(directory, true);
-        cursor = directory;
+        lock.readLock().lock();
+        try{
+            DirectoryOrFile current = cursor;
+            if(name.equals(current.getName()))
+                return;
+            DirectoryOrFile directory = follow(current.find(name));
+            checkDF(directory, true);
+            directory.markAccessed();
+            touch(directory);
+            cursor = directory;
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
     }
 
     /**
@@ -85,7 +253,8 @@ public class DirectoryTree {
      *      The path to the wanted DirectoryOrFile object.
      *
      * @param directory
-     *      True if the path must leads to a directory, false otherwise.
+     *      True if the path must leads to a directory, false otherwise. Symbolic links along the path are
+     *      followed, and so is the last one when the path must lead to a directory.
      *
      * @return
      *      The wanted DirectoryOrFile object.
@@ -106,12 +275,100 @@ public class DirectoryTree {
 
         for(; i < pathArr.length; i++){
             df = df.find(pathArr[i]);
+            if(directory || i < pathArr.length - 1)
+                df = follow(df);
             checkDF(df, directory);
         }
 
         return df;
     }
 
+    /**
+     * Follows <code>df</code> to the directory/file it points to if it's a symbolic link.
+     *
+     * @param df
+     *      The directory/file being followed, may be null.
+     *
+     * @return
+     *      The target of <code>df</code> if it's a symbolic link, otherwise <code>df</code> itself.
+     *
+     * @throws IllegalArgumentException
+     *      when the link runs into a loop of symbolic links.
+     *
+     * @throws DFNotFoundException
+     *      when the link points to a directory/file that does not exist.
+     */
+    private DirectoryOrFile follow(DirectoryOrFile df) throws DFNotFoundException {
+        return follow(df, 0, new ArrayList<>());
+    }
+
+    /**
+     * Helper method for follow.
+     * Resolves the target of a symbolic link from the root or from the directory containing the link,
+     * following every symbolic link met along the way. Resolved targets are cached along with the
+     * directories walked to reach them, until one of those directories loses a child.
+     *
+     * @param df
+     *      The directory/file being followed, may be null.
+     *
+     * @param hops
+     *      Number of symbolic links already followed to reach <code>df</code>.
+     *
+     * @param walked
+     *      Directories the caller's resolution depends on, which the directories walked to resolve
+     *      <code>df</code> are added to.
+     *
+     * @return
+     *      The target of <code>df</code> if it's a symbolic link, otherwise <code>df</code> itself.
+     */
+    private DirectoryOrFile follow(DirectoryOrFile df, int hops, List<DirectoryOrFile> walked)
+            throws DFNotFoundException {
+        if(df == null || !df.isSymbolicLink())
+            return df;
+        DirectoryOrFile cached = linkCache.get(df, walked);
+        if(cached != null)
+            return cached;
+        if(hops >= MAX_LINK_HOPS)
+            throw new IllegalArgumentException("Error: Too many levels of symbolic links.");
+
+        String[] pathArr = df.getLinkTarget().split("/");
+        List<DirectoryOrFile> dependencies = new ArrayList<>();
+        dependencies.add(df.getParent());
+        DirectoryOrFile target;
+        int i;
+
+        if(pathArr[0].equals("root")) {
+            i = 1;
+            target = root;
+        }
+        else {
+            i = 0;
+            target = df.getParent();
+        }
+
+        for(; i < pathArr.length && target != null; i++){
+            target = follow(target, hops + 1, dependencies);
+            if(target.isFile())
+                target = null;
+            else if(pathArr[i].equals("..")){
+                target = target == root ? root : target.getParent();
+                dependencies.add(target);
+            }
+            else if(!pathArr[i].equals(".")){
+                dependencies.add(target);
+                target = target.find(pathArr[i]);
+            }
+        }
+        target = follow(target, hops + 1, dependencies);
+
+        if(target == null)
+            throw new DFNotFoundException("Error: Broken symbolic link \"" + df.getName() + "\" -> \""
+                    + df.getLinkTarget() + "\"");
+        linkCache.put(df, target, dependencies);
+        walked.addAll(dependencies);
+        return target;
+    }
+
     /**
      * Moves to a directory based on the given path.
      *
@@ -121,12 +378,21 @@ public class DirectoryTree {
     public void changeDirectoryWithPath(String path) throws NotADirectoryException, DFNotFoundException {
         if(path == null || !path.contains("/"))
             throw new IllegalArgumentException("Error: Input path is invalid.");
-        if(path.equals(cursor.getPath()))
-            return;
         String[] pathArr = path.trim().split("/");
         if(pathArr.length < 1)
             throw new IllegalArgumentException("Error: Input path is invalid.");
-        cursor = moveByPath(pathArr, true);
+        lock.readLock().lock();
+        try{
+            if(path.equals(cursor.getPath()))
+                return;
+            DirectoryOrFile directory = moveByPath(pathArr, true);
+            directory.markAccessed();
+            touch(directory);
+            cursor = directory;
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
     }
 
     /**
@@ -140,9 +406,65 @@ public class DirectoryTree {
      *
      */
     public void makeDirectory(String name) throws NotADirectoryException, FullDirectoryException {
-        if(name == null || name.isEmpty() || name.contains("/"))
-            throw new IllegalArgumentException("Error: Invalid name \"" + (name == null ? "" : name)  + "\"");
-        cursor.addChild(new DirectoryOrFile(name.replaceAll(" ", "_")));
+        lock.writeLock().lock();
+        try{
+            if(name == null || name.isEmpty() || name.contains("/"))
+                throw new IllegalArgumentException("Error: Invalid name \"" + (name == null ? "" : name)  + "\"");
+            cursor.addChild(new DirectoryOrFile(name.replaceAll(" ", "_")));
+            added(1);
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a directory at each of the input paths in a single all-or-nothing change. Paths sharing a
+     * parent directory resolve it only once.
+     *
+     * @param parents
+     *      True if missing directories along the paths are created and existing directories are left
+     *      as they are, like <code>mkdir -p</code>. False if every directory above each path must exist.
+     *
+     * @param paths
+     *      Absolute paths or paths relative to the working directory.
+     *
+     * @throws IllegalArgumentException
+     *      when no path is given or a path contains an empty name.
+     */
+    public void makeDirectories(boolean parents, String... paths) throws NotADirectoryException,
+            FullDirectoryException, DFNotFoundException {
+        if(paths == null || paths.length == 0)
+            throw new IllegalArgumentException("Error: Invalid mkdir command.");
+        TreeBatch batch = begin();
+        for(String path : paths){
+            if(parents)
+                batch.makeDirectories(path);
+            else
+                batch.makeDirectory(path);
+        }
+        batch.commit();
+    }
+
+    /**
+     * Creates a file at each of the input paths in a single all-or-nothing change. Paths sharing a parent
+     * directory resolve it only once, and existing directories/files only have their modification time
+     * updated.
+     *
+     * @param paths
+     *      Absolute paths or paths relative to the working directory. Every directory above each path
+     *      must exist.
+     *
+     * @throws IllegalArgumentException
+     *      when no path is given or a path contains an empty name.
+     */
+    public void makeFiles(String... paths) throws NotADirectoryException, FullDirectoryException,
+            DFNotFoundException {
+        if(paths == null || paths.length == 0)
+            throw new IllegalArgumentException("Error: Invalid touch command.");
+        TreeBatch batch = begin();
+        for(String path : paths)
+            batch.makeFile(path);
+        batch.commit();
     }
 
     /**
@@ -155,16 +477,131 @@ public class DirectoryTree {
      *      when name contains a forward slash or is empty/null.
      */
     public void makeFile(String name) throws NotADirectoryException, FullDirectoryException {
-        if(name == null || name.isEmpty() || name.contains("/"))
-            throw new IllegalArgumentException("Error: Invalid name \"" + (name == null ? "" : name) + "\"");
-        cursor.addChild(new DirectoryOrFile(name.replaceAll(" ", "_"), true));
+        lock.writeLock().lock();
+        try{
+            if(name == null || name.isEmpty() || name.contains("/"))
+                throw new IllegalArgumentException("Error: Invalid name \"" + (name == null ? "" : name) + "\"");
+            cursor.addChild(new DirectoryOrFile(name.replaceAll(" ", "_"), true));
+            added(1);
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a symbolic link at <code>linkPath</code> pointing to <code>target</code>. The target does not
+     * have to exist yet; it's resolved every time a path goes through the link.
+     *
+     * @param target
+     *      Absolute path, or path relative to the directory containing the link, the link points to.
+     *
+     * @param linkPath
+     *      Absolute path, or path relative to the working directory, of the created link. If it leads to an
+     *      existing directory, the link is created inside it under the last name of <code>target</code>.
+     *
+     * @throws IllegalArgumentException
+     *      when either path is empty/null or contains an empty name.
+     */
+    public void makeSymbolicLink(String target, String linkPath) throws DFNotFoundException,
+            NotADirectoryException, FullDirectoryException {
+        if(target == null || target.isEmpty() || linkPath == null || linkPath.isEmpty())
+            throw new IllegalArgumentException("Error: Input path is invalid.");
+        String[] targetArr = splitPath(target);
+        lock.writeLock().lock();
+        try{
+            addLink(linkPath, targetArr[targetArr.length - 1], name -> new DirectoryOrFile(name, target.trim()));
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a hard link at <code>linkPath</code> sharing the timestamps and size of the file at
+     * <code>targetPath</code>.
+     *
+     * @param targetPath
+     *      Absolute path, or path relative to the working directory, of the linked file.
+     *
+     * @param linkPath
+     *      Absolute path, or path relative to the working directory, of the created link. If it leads to an
+     *      existing directory, the link is created inside it under the name of the linked file.
+     *
+     * @throws IllegalArgumentException
+     *      when either path is empty/null, or <code>targetPath</code> does not lead to a file.
+     */
+    public void makeHardLink(String targetPath, String linkPath) throws DFNotFoundException,
+            NotADirectoryException, FullDirectoryException {
+        if(linkPath == null || linkPath.isEmpty())
+            throw new IllegalArgumentException("Error: Input path is invalid.");
+        lock.writeLock().lock();
+        try{
+            DirectoryOrFile file = resolve(targetPath);
+            addLink(linkPath, file.getName(), name -> new DirectoryOrFile(name, file));
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Helper method for makeSymbolicLink and makeHardLink.
+     * Adds the link made by <code>factory</code> at <code>linkPath</code> while holding the write lock.
+     *
+     * @param linkPath
+     *      Path of the created link, or of the directory it's created in.
+     *
+     * @param defaultName
+     *      Name of the link when <code>linkPath</code> leads to an existing directory.
+     *
+     * @param factory
+     *      Creates the link with the given name.
+     */
+    private void addLink(String linkPath, String defaultName, Function<String, DirectoryOrFile> factory)
+            throws DFNotFoundException, NotADirectoryException, FullDirectoryException {
+        String[] pathArr = splitNewPath(linkPath);
+        String name = pathArr[pathArr.length - 1];
+        DirectoryOrFile parent = resolveDirectory(pathArr, pathArr.length - 1, new HashMap<>(), null, false);
+        DirectoryOrFile existing = name.equals(".") || name.equals("..") ? resolve(linkPath)
+                : follow(parent.find(name));
+        if(existing != null && !existing.isFile()){
+            parent = existing;
+            name = defaultName;
+        }
+        DirectoryOrFile link = factory.apply(name.replaceAll(" ", "_"));
+        try{
+            parent.addChild(link);
+        } catch(IllegalArgumentException | FullDirectoryException e){
+            link.releaseHardLinks();
+            throw e;
+        }
+        added(1);
+    }
+
+    /**
+     * Records that directories/files were added to or removed from the working directory, so that
+     * tiered storage can keep the structure within its memory budget.
+     *
+     * @param count
+     *      Number of directories/files added (positive) or removed (negative).
+     */
+    private void added(int count){
+        if(store == null)
+            return;
+        store.adjustResident(count);
+        touch(cursor);
+        enforceBudget();
     }
 
     /**
      * Prints the entire File Hierarchy Structure.
      */
     public void printStructure(){
-        root.printStructure(1);
+        lock.readLock().lock();
+        try{
+            root.printStructure(1);
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
     }
 
     /**
@@ -194,18 +631,64 @@ public class DirectoryTree {
         if(df == null)
             return null;
 
-        if(df.getName().equals(name))
-            return df;
-
-        for(DirectoryOrFile node : df.getChildrenDF()){
-            DirectoryOrFile result = search(node, name);
-            if(result != null)
-                return result;
+        Iterator<TraversalEntry> it = df.iterator(TraversalOrder.PRE_ORDER);
+        while(it.hasNext()){
+            DirectoryOrFile node = it.next().getDF();
+            if(node.getName().equals(name))
+                return node;
         }
 
         return null;
     }
 
+    /**
+     * Returns an iterator that lazily visits every directory/file in the structure, starting from
+     * the root directory. The iterator walks the live structure without holding any lock, so it must not be
+     * used while background jobs may modify the structure; use <code>walk</code> instead.
+     *
+     * @param order
+     *      The order in which the directories/files are visited.
+     *
+     * @return
+     *      A non-recursive iterator over the entire structure, where the root has a depth of 0.
+     */
+    public Iterator<TraversalEntry> traverse(TraversalOrder order){
+        return root.iterator(order);
+    }
+
+    /**
+     * Returns a stream over every directory/file in the structure. The stream may be turned parallel
+     * to spread the walk over a large structure across several threads. Like <code>traverse</code>, it
+     * holds no lock and must not be used while background jobs may modify the structure.
+     *
+     * @return
+     *      A stream of all the directories/files in the structure.
+     */
+    public Stream<DirectoryOrFile> stream(){
+        return root.stream();
+    }
+
+    /**
+     * Visits every directory/file in the structure while holding the read lock, so that background jobs
+     * cannot modify the structure until the walk is over.
+     *
+     * @param order
+     *      The order in which the directories/files are visited.
+     *
+     * @param action
+     *      Called for every visited directory/file, where the root has a depth of 0. It must not modify
+     *      the structure.
+     */
+    public void walk(TraversalOrder order, Consumer<TraversalEntry> action){
+        lock.readLock().lock();
+        try{
+            root.iterator(order).forEachRemaining(action);
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
+    }
+
     /**
      * Searches for a directory/file named <code>name</code> and prints out the absolute path to it.
      *
@@ -219,12 +702,112 @@ public class DirectoryTree {
         if(name == null || name.isEmpty())
             throw new IllegalArgumentException("Error: Invalid directory/file name.");
 
-        DirectoryOrFile dfFound = search(root, name);
+        DirectoryOrFile dfFound;
+        lock.readLock().lock();
+        try{
+            dfFound = search(root, name);
+            if(dfFound != null)
+                touch(dfFound);
+        } finally{
+            lock.readLock().unlock();
+        }
 
         if(dfFound == null)
             throw new DFNotFoundException("Error: No such directory/file \"" + name +"\" exist.");
 
         System.out.println(dfFound.getPath());
+        enforceBudget();
+    }
+
+    /**
+     * Views the directory/file at <code>path</code> as the root and collects every directory/file under it
+     * that matches <code>query</code>, in pre-order. Subtrees whose latest modification time is not after
+     * the time bound of <code>query</code> are skipped without being visited or loaded from disk.
+     *
+     * @param path
+     *      Absolute or relative path to start from, or null to start from the working directory.
+     *
+     * @param query
+     *      Conditions the directories/files must satisfy.
+     *
+     * @return
+     *      List of the matching directories/files.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>query</code> is null or <code>path</code> is invalid.
+     */
+    public List<DirectoryOrFile> findAll(String path, FindQuery query) throws DFNotFoundException,
+            NotADirectoryException, FullDirectoryException {
+        if(query == null)
+            throw new IllegalArgumentException("Error: Invalid find command.");
+
+        List<DirectoryOrFile> found = new ArrayList<>();
+        long modifiedAfter = query.getModifiedAfter();
+        ArrayDeque<DirectoryOrFile> stack = new ArrayDeque<>();
+        lock.readLock().lock();
+        try{
+            stack.push(path == null ? cursor : resolve(path));
+            while(!stack.isEmpty()){
+                Job.checkCancelled();
+                DirectoryOrFile df = stack.pop();
+                if(df.getLatestModified() <= modifiedAfter)
+                    continue;
+                if(query.matches(df))
+                    found.add(df);
+                if(df.isFile())
+                    continue;
+                DirectoryOrFile[] children = df.getChildrenDF();
+                for(int i = children.length - 1; i >= 0; i--)
+                    if(children[i] != null)
+                        stack.push(children[i]);
+            }
+        } finally{
+            lock.readLock().unlock();
+        }
+
+        enforceBudget();
+        return found;
+    }
+
+    /**
+     * Returns the directory/file at <code>path</code>.
+     *
+     * @param path
+     *      Absolute path, or path relative to the working directory. The names "." and ".." refer to
+     *      the current and the parent directory. Symbolic links along the path, including the last one,
+     *      are followed.
+     *
+     * @return
+     *      The wanted DirectoryOrFile object.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>path</code> is empty/null, contains an empty name, or runs into a loop of symbolic links.
+     *
+     * @throws DFNotFoundException
+     *      when nothing exists at <code>path</code>.
+     */
+    public DirectoryOrFile resolve(String path) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        if(path == null || path.isEmpty())
+            throw new IllegalArgumentException("Error: Input path is invalid.");
+        String[] pathArr = splitPath(path);
+        if(pathArr.length == 1 && pathArr[0].equals("root"))
+            return root;
+
+        lock.readLock().lock();
+        try{
+            DirectoryOrFile parent = resolveDirectory(pathArr, pathArr.length - 1, new HashMap<>(), null, false);
+            String name = pathArr[pathArr.length - 1];
+            DirectoryOrFile df = switch (name) {
+                case "." -> parent;
+                case ".." -> parent.getParent();
+                default -> follow(parent.find(name));
+            };
+            checkDF(df, false);
+            return df;
+        } finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -236,10 +819,69 @@ public class DirectoryTree {
      *
      */
     public String listDirectoryFile(){
-        return cursor.printChildrenDF();
+        String children;
+        lock.readLock().lock();
+        try{
+            DirectoryOrFile current = cursor;
+            children = current.printChildrenDF();
+            current.markAccessed();
+            touch(current);
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
+        return children;
     }
 
 
+    /**
+     * Returns one page of the directories/files within the working directory, sorted in the given order.
+     * Only the directories/files after <code>after</code> are considered, which lets a listing continue
+     * from the last page it printed.
+     *
+     * @param order
+     *      The order the directories/files are sorted in.
+     *
+     * @param reverse
+     *      True to reverse the order.
+     *
+     * @param after
+     *      A continuation cursor from <code>ListOrder.cursorOf</code>, or null to start from the beginning.
+     *
+     * @param offset
+     *      Number of directories/files to skip after the cursor.
+     *
+     * @param limit
+     *      Maximum number of directories/files on the page.
+     *
+     * @return
+     *      The directories/files on the page.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>order</code> is null, or <code>offset</code> or <code>limit</code> is negative.
+     */
+    public List<DirectoryOrFile> listPage(ListOrder order, boolean reverse, String after, int offset, int limit){
+        if(order == null || offset < 0 || limit < 0)
+            throw new IllegalArgumentException("Error: Invalid ls command.");
+
+        int sign = reverse ? -1 : 1;
+        List<DirectoryOrFile> page = new ArrayList<>();
+        lock.readLock().lock();
+        try{
+            DirectoryOrFile current = cursor;
+            for(DirectoryOrFile df : current.getChildrenDF())
+                if(df != null && (after == null || sign * order.compareToCursor(df, after) > 0))
+                    page.add(df);
+            current.markAccessed();
+            touch(current);
+        } finally{
+            lock.readLock().unlock();
+        }
+        page.sort(reverse ? order.getComparator().reversed() : order.getComparator());
+        enforceBudget();
+        return page.subList(Math.min(offset, page.size()), (int) Math.min((long) offset + limit, page.size()));
+    }
+
     /**
      * Moves to the parent of the working directory.
      *
@@ -247,10 +889,16 @@ public class DirectoryTree {
      *      when the working directory is the root directory
      */
     public void moveToParent(){
-        if(cursor == root)
-            throw new IllegalArgumentException("Error: Already at root directory.");
+        lock.readLock().lock();
+        try{
+            DirectoryOrFile current = cursor;
+            if(current == root)
+                throw new IllegalArgumentException("Error: Already at root directory.");
 
-        cursor = cursor.getParent();
+            cursor = current.getParent();
+        } finally{
+            lock.readLock().unlock();
+        }
     }
 
 
@@ -264,9 +912,20 @@ public class DirectoryTree {
      *      the working directory.
      */
     public void remove(String name, boolean directory) throws DFNotFoundException {
-        if(cursor.removeChild(name, directory) == null)
-            throw new DFNotFoundException("Error: \"" + name + "\" does not exist in the current " +
-                    "working directory.");
+        lock.writeLock().lock();
+        try{
+            DirectoryOrFile removedDF = cursor.removeChild(name, directory);
+            if(removedDF == null)
+                throw new DFNotFoundException("Error: \"" + name + "\" does not exist in the current " +
+                        "working directory.");
+            linkCache.invalidate(cursor);
+            linkCache.invalidateSubtree(removedDF);
+            removedDF.releaseHardLinks();
+            if(store != null)
+                added(-removedDF.residentSize());
+        } finally{
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -279,17 +938,355 @@ public class DirectoryTree {
      *      Path of the destination directory.
      */
     public void move(String srcPath, String dstPath) throws DFNotFoundException, NotADirectoryException, FullDirectoryException {
+        lock.writeLock().lock();
+        try{
+            checkMove(srcPath, dstPath);
+            String[] srcPathArr = srcPath.split("/"), dstPathArr = dstPath.split("/");
+            if(Arrays.equals(srcPathArr, dstPathArr))
+                return;
+            DirectoryOrFile srcPtr = moveByPath(srcPathArr, false), dstPtr = moveByPath(dstPathArr, true);
+            checkMove(srcPtr, dstPtr);
+            linkCache.invalidate(srcPtr.getParent());
+            dstPtr.addChild(srcPtr.getParent().removeChild(srcPtr.getName(), !srcPtr.isFile()));
+            touch(srcPtr);
+            enforceBudget();
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Helper method for move and commit.
+     * Checks that <code>srcPath</code> can be moved to <code>dstPath</code>.
+     *
+     * @throws IllegalArgumentException
+     *      when the source is the root or a parent of the destination, or either path is not absolute.
+     */
+    private static void checkMove(String srcPath, String dstPath){
         if(srcPath.equals("root") || (dstPath.contains(srcPath) && srcPath.length() < dstPath.length()))
             throw new IllegalArgumentException("Error: Cannot move a parent directory to a child directory.");
 
         if(!(srcPath.startsWith("root") && dstPath.startsWith("root")))
             throw new IllegalArgumentException("Error: Invalid absolute path.");
+    }
 
-        String[] srcPathArr = srcPath.split("/"), dstPathArr = dstPath.split("/");
-        if(Arrays.equals(srcPathArr, dstPathArr))
-            return;
-        DirectoryOrFile srcPtr = moveByPath(srcPathArr, false), dstPtr = moveByPath(dstPathArr, true);
-        dstPtr.addChild(srcPtr.getParent().removeChild(srcPtr.getName(), !srcPtr.isFile()));
+    /**
+     * Helper method for move and commit.
+     * Checks that <code>src</code> is not the destination or one of the directories above it. Comparing
+     * the paths is not enough once the destination has been reached through a symbolic link.
+     *
+     * @param src
+     *      The moved directory/file.
+     *
+     * @param dst
+     *      The resolved destination directory.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>dst</code> is inside <code>src</code>.
+     */
+    private static void checkMove(DirectoryOrFile src, DirectoryOrFile dst){
+        for(DirectoryOrFile df = dst; df != null; df = df.getParent())
+            if(df == src)
+                throw new IllegalArgumentException("Error: Cannot move a parent directory to a child directory.");
+    }
+
+    /**
+     * Compares the contents of two directories, descending only into subtrees whose hashes differ.
+     *
+     * @param pathA
+     *      Absolute or relative path of the directory taken as the original.
+     *
+     * @param pathB
+     *      Absolute or relative path of the directory taken as the modified one.
+     *
+     * @return
+     *      The directories/files added, removed and moved from <code>pathA</code> to <code>pathB</code>.
+     *
+     * @throws IllegalArgumentException
+     *      when either path is empty/null or contains an empty name.
+     */
+    public TreeDiff diff(String pathA, String pathB) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        if(pathA == null || pathA.isEmpty() || pathB == null || pathB.isEmpty())
+            throw new IllegalArgumentException("Error: Input path is invalid.");
+        String[] pathArrA = splitPath(pathA), pathArrB = splitPath(pathB);
+        Map<String, DirectoryOrFile> resolved = new HashMap<>();
+        TreeDiff result;
+        lock.readLock().lock();
+        try{
+            result = new TreeDiff(resolveDirectory(pathArrA, pathArrA.length, resolved, null, false),
+                    resolveDirectory(pathArrB, pathArrB.length, resolved, null, false));
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
+        return result;
+    }
+
+    /**
+     * Exports the directory/file at <code>path</code> and everything under it to an archive file. The
+     * archive is streamed under the read lock, which only holds up commands that modify the structure.
+     *
+     * @param path
+     *      Absolute or relative path of the exported directory/file.
+     *
+     * @param file
+     *      Path of the archive file on disk.
+     *
+     * @param compress
+     *      True to gzip the archive while it's being written.
+     *
+     * @throws UncheckedIOException
+     *      when the archive file cannot be written.
+     */
+    public void exportArchive(String path, String file, boolean compress) throws DFNotFoundException,
+            NotADirectoryException, FullDirectoryException {
+        if(file == null || file.isEmpty())
+            throw new IllegalArgumentException("Error: Invalid archive file.");
+        lock.readLock().lock();
+        try{
+            TreeArchive.export(resolve(path), file, compress);
+        } finally{
+            lock.readLock().unlock();
+        }
+        enforceBudget();
+    }
+
+    /**
+     * Reads an archive file and adds the subtree it holds to the directory at <code>path</code>. The
+     * archive is read completely before the structure is modified, so a broken archive leaves the
+     * structure unchanged.
+     *
+     * @param file
+     *      Path of the archive file on disk.
+     *
+     * @param path
+     *      Absolute or relative path of the destination directory.
+     *
+     * @throws UncheckedIOException
+     *      when the archive file cannot be read or is not a valid archive.
+     *
+     * @throws IllegalArgumentException
+     *      when the destination already contains a directory/file with the name of the archived one.
+     */
+    public void importArchive(String file, String path) throws DFNotFoundException, NotADirectoryException,
+            FullDirectoryException {
+        if(file == null || file.isEmpty())
+            throw new IllegalArgumentException("Error: Invalid archive file.");
+        TreeArchive archive = TreeArchive.read(file);
+        lock.writeLock().lock();
+        try{
+            DirectoryOrFile destination = resolve(path);
+            checkDF(destination, true);
+            destination.addChild(archive.getRoot());
+            archive.getRoot().updateDescendantPaths();
+            added(archive.getCount());
+        } finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a batch of mkdir, touch, mv and rm operations that is applied to the structure as a single
+     * all-or-nothing change once it's committed.
+     *
+     * @return
+     *      An empty TreeBatch bound to the current structure.
+     */
+    public TreeBatch begin(){
+        return new TreeBatch(this);
+    }
+
+    /**
+     * Applies every operation of <code>batch</code> while holding the write lock of the structure. Directories
+     * resolved by one operation are remembered, so that operations sharing a parent directory walk its path
+     * only once. If any operation fails, or the job running the commit is killed, the journal of
+     * <code>batch</code> restores the structure and the error is rethrown. Touching an existing file only
+     * updates its timestamps once every operation has succeeded.
+     *
+     * @param batch
+     *      The batch being committed.
+     */
+    void commit(TreeBatch batch) throws NotADirectoryException, FullDirectoryException,
+            DFNotFoundException {
+        lock.writeLock().lock();
+        try{
+            Map<String, DirectoryOrFile> resolved = new HashMap<>();
+            List<DirectoryOrFile> removedDFs = new ArrayList<>();
+            List<DirectoryOrFile> touched = new ArrayList<>();
+            int removed = 0;
+            try{
+                for(String[] op : batch.getOperations()){
+                    Job.checkCancelled();
+                    switch (op[0]) {
+                        case "mkdir", "touch" -> {
+                            String[] pathArr = splitNewPath(op[1]);
+                            String name = pathArr[pathArr.length - 1].replaceAll(" ", "_");
+                            if(name.equals(".") || name.equals(".."))
+                                throw new IllegalArgumentException("Error: Invalid name \"" + name + "\"");
+                            DirectoryOrFile parent = resolveDirectory(pathArr, pathArr.length - 1, resolved, batch,
+                                    false);
+                            DirectoryOrFile existing = op[0].equals("touch") ? parent.find(name) : null;
+                            if(existing != null){
+                                touched.add(existing);
+                                continue;
+                            }
+                            batch.recordChildren(parent);
+                            parent.addChild(new DirectoryOrFile(name, op[0].equals("touch")));
+                        }
+                        case "mkdir -p" -> {
+                            String[] pathArr = splitNewPath(op[1]);
+                            resolveDirectory(pathArr, pathArr.length, resolved, batch, true);
+                        }
+                        case "mv" -> {
+                            checkMove(op[1], op[2]);
+                            String[] srcPathArr = op[1].split("/"), dstPathArr = op[2].split("/");
+                            if(Arrays.equals(srcPathArr, dstPathArr))
+                                continue;
+                            DirectoryOrFile srcPtr = moveByPath(srcPathArr, false);
+                            DirectoryOrFile dstPtr = resolveDirectory(dstPathArr, dstPathArr.length, resolved, batch,
+                                    false);
+                            checkMove(srcPtr, dstPtr);
+                            batch.recordChildren(srcPtr.getParent());
+                            batch.recordChildren(dstPtr);
+                            batch.recordLink(srcPtr);
+                            linkCache.invalidate(srcPtr.getParent());
+                            dstPtr.addChild(srcPtr.getParent().removeChild(srcPtr.getName(), !srcPtr.isFile()));
+                            resolved.clear();
+                        }
+                        default -> {
+                            batch.recordChildren(cursor);
+                            DirectoryOrFile removedDF = cursor.removeChild(op[1], op[0].equals("rm -r"));
+                            if(removedDF == null)
+                                throw new DFNotFoundException("Error: \"" + op[1] + "\" does not exist in the current " +
+                                        "working directory.");
+                            linkCache.invalidate(cursor);
+                            linkCache.invalidateSubtree(removedDF);
+                            removedDFs.add(removedDF);
+                            if(store != null)
+                                removed += removedDF.residentSize() - 1;
+                            resolved.clear();
+                        }
+                    }
+                }
+            } catch(IllegalArgumentException | NotADirectoryException | FullDirectoryException |
+                    DFNotFoundException | CancellationException e){
+                batch.rollback();
+                linkCache.clear();
+                throw e;
+            }
+            for(DirectoryOrFile df : touched)
+                df.markModified();
+            for(DirectoryOrFile removedDF : removedDFs)
+                removedDF.releaseHardLinks();
+            int added = batch.childDelta() - removed;
+            batch.clearJournal();
+            added(added);
+        } finally{
+            lock.writeLock().unlock();
+        }
     }
 
+    /**
+     * Helper method for commit.
+     * Splits <code>path</code> into the names of the directories/files along it.
+     *
+     * @param path
+     *      An absolute path or a path relative to the working directory.
+     *
+     * @return
+     *      The names along <code>path</code>.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>path</code> contains an empty name.
+     */
+    private static String[] splitPath(String path){
+        String[] pathArr = path.trim().split("/");
+        for(String name : pathArr)
+            if(name.isEmpty())
+                throw new IllegalArgumentException("Error: Invalid path \"" + path + "\"");
+        return pathArr;
+    }
+
+    /**
+     * Helper method for commit and addLink.
+     * Splits the path of a directory/file about to be created. A single name without any forward slash is
+     * created in the working directory, like mkdir and touch always did, even when it's "root".
+     *
+     * @param path
+     *      An absolute path, a path relative to the working directory, or a single name.
+     *
+     * @return
+     *      The names along <code>path</code>.
+     */
+    private static String[] splitNewPath(String path){
+        return splitPath(path.contains("/") ? path : "./" + path.trim());
+    }
+
+    /**
+     * Helper method for commit.
+     * Resolves the directory made of the first <code>len</code> names of <code>pathArr</code>, reusing and
+     * filling <code>resolved</code> with every directory passed along the way. The names "." and ".."
+     * refer to the current and the parent directory, and symbolic links along the path are followed.
+     *
+     * @param pathArr
+     *      The path, either absolute or relative to the working directory.
+     *
+     * @param len
+     *      Number of names of <code>pathArr</code> that lead to the wanted directory.
+     *
+     * @param resolved
+     *      Directories already resolved by the current batch, keyed by their path.
+     *
+     * @param batch
+     *      The batch being committed, which journals the directories created along the way.
+     *
+     * @param create
+     *      True if missing directories along the path are created, false if they are reported.
+     *
+     * @return
+     *      The wanted directory.
+     */
+    private DirectoryOrFile resolveDirectory(String[] pathArr, int len, Map<String, DirectoryOrFile> resolved,
+                                             TreeBatch batch, boolean create)
+            throws DFNotFoundException, NotADirectoryException, FullDirectoryException {
+        DirectoryOrFile df;
+        int i;
+        StringBuilder key;
+
+        if(pathArr[0].equals("root")) {
+            i = 1;
+            df = root;
+            key = new StringBuilder("root");
+        }
+        else {
+            i = 0;
+            df = cursor;
+            key = new StringBuilder(".");
+        }
+
+        for(; i < len; i++){
+            key.append('/').append(pathArr[i]);
+            String prefix = key.toString();
+            DirectoryOrFile next = resolved.get(prefix);
+            if(next == null && (pathArr[i].equals(".") || pathArr[i].equals(".."))){
+                next = pathArr[i].equals(".") ? df : df.getParent();
+                if(next == null)
+                    throw new IllegalArgumentException("Error: Already at root directory.");
+            }
+            if(next == null){
+                next = follow(df.find(pathArr[i]));
+                if(next == null && create){
+                    batch.recordChildren(df);
+                    next = new DirectoryOrFile(pathArr[i]);
+                    df.addChild(next);
+                }
+                checkDF(next, true);
+                resolved.put(prefix, next);
+            }
+            df = next;
+        }
+
+        return df;
+    }
 }
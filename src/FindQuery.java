@@ -0,0 +1,208 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The FindQuery class represents the combined conditions of a find command (-type, -size, -mtime, -newer
+ * and -name). A directory/file matches the query when it satisfies every condition. Conditions are checked
+ * from the cheapest to the most expensive, so a comparison of names only happens once the type, size and
+ * timestamps already match. Time-based conditions also give a lower bound on the modification time, which
+ * lets the search skip every subtree that has not been modified since.
+ *
+ * @author Zhen Wei Liao
+ */
+public class FindQuery {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final int TYPE_COST = 0;
+    private static final int SIZE_COST = 1;
+    private static final int TIME_COST = 2;
+    private static final int NAME_COST = 3;
+
+    private final List<Predicate<DirectoryOrFile>> conditions = new ArrayList<>();
+    private final List<Integer> costs = new ArrayList<>();
+    private long modifiedAfter = Long.MIN_VALUE;
+
+    /**
+     * Constructor creates a query that matches every directory/file.
+     */
+    public FindQuery(){
+    }
+
+    /**
+     * Helper method for the condition methods.
+     * Inserts <code>condition</code> after every condition that is not more expensive.
+     *
+     * @return
+     *      The current query.
+     */
+    private FindQuery add(int cost, Predicate<DirectoryOrFile> condition){
+        int i = 0;
+        while(i < costs.size() && costs.get(i) <= cost)
+            i++;
+        costs.add(i, cost);
+        conditions.add(i, condition);
+        return this;
+    }
+
+    /**
+     * Adds the -name condition.
+     *
+     * @param name
+     *      The exact name of the wanted directories/files.
+     *
+     * @return
+     *      The current query.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>name</code> is empty/null.
+     */
+    public FindQuery name(String name){
+        if(name == null || name.isEmpty())
+            throw new IllegalArgumentException("Error: Invalid directory/file name.");
+        return add(NAME_COST, df -> name.equals(df.getName()));
+    }
+
+    /**
+     * Adds the -type condition.
+     *
+     * @param type
+     *      "f" to match files, "d" to match directories, "l" to match symbolic links.
+     *
+     * @return
+     *      The current query.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>type</code> is neither "f", "d" nor "l".
+     */
+    public FindQuery type(String type){
+        if(!("f".equals(type) || "d".equals(type) || "l".equals(type)))
+            throw new IllegalArgumentException("Error: Invalid type \"" + type + "\", expected f, d or l.");
+        boolean file = !type.equals("d"), link = type.equals("l");
+        return add(TYPE_COST, df -> df.isFile() == file && df.isSymbolicLink() == link);
+    }
+
+    /**
+     * Adds the -size condition.
+     *
+     * @param size
+     *      A size in bytes, optionally followed by k or M. Prefixed with "+" to match larger sizes, with
+     *      "-" to match smaller sizes, or neither to match the exact size.
+     *
+     * @return
+     *      The current query.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>size</code> is not a valid size.
+     */
+    public FindQuery size(String size){
+        int sign = sign(size);
+        String amount = sign == 0 ? size : size.substring(1);
+        long unit = 1;
+        if(amount.endsWith("k"))
+            unit = 1024;
+        else if(amount.endsWith("M"))
+            unit = 1024 * 1024;
+        if(unit != 1 || amount.endsWith("c"))
+            amount = amount.substring(0, amount.length() - 1);
+        long bytes = parse(amount, "size") * unit;
+        return add(SIZE_COST, df -> Long.signum(Long.compare(df.getSize(), bytes)) == sign);
+    }
+
+    /**
+     * Adds the -mtime condition, which compares the number of whole days since the last modification.
+     *
+     * @param days
+     *      A number of days. Prefixed with "+" to match older directories/files, with "-" to match more
+     *      recent ones, or neither to match the exact number of days.
+     *
+     * @return
+     *      The current query.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>days</code> is not a valid number.
+     */
+    public FindQuery mtime(String days){
+        int sign = sign(days);
+        long n = parse(sign == 0 ? days : days.substring(1), "mtime");
+        long now = System.currentTimeMillis();
+        if(sign < 0)
+            modifiedAfter = Math.max(modifiedAfter, now - n * DAY);
+        else if(sign == 0)
+            modifiedAfter = Math.max(modifiedAfter, now - (n + 1) * DAY);
+        return add(TIME_COST, df -> Long.signum(Long.compare((now - df.getModified()) / DAY, n)) == sign);
+    }
+
+    /**
+     * Adds the -newer condition.
+     *
+     * @param reference
+     *      The directory/file whose modification time the matches must be more recent than.
+     *
+     * @return
+     *      The current query.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>reference</code> is null.
+     */
+    public FindQuery newer(DirectoryOrFile reference){
+        if(reference == null)
+            throw new IllegalArgumentException("Error: Invalid -newer reference.");
+        long time = reference.getModified();
+        modifiedAfter = Math.max(modifiedAfter, time);
+        return add(TIME_COST, df -> df.getModified() > time);
+    }
+
+    /**
+     * Returns the time every match must have been modified after. Subtrees whose latest modification
+     * time is not after it cannot contain a match.
+     *
+     * @return
+     *      Lower bound on the modification time, Long.MIN_VALUE if the query has no time condition.
+     */
+    public long getModifiedAfter() {
+        return modifiedAfter;
+    }
+
+    /**
+     * Checks <code>df</code> against every condition, from the cheapest to the most expensive.
+     *
+     * @param df
+     *      The directory/file being checked.
+     *
+     * @return
+     *      True if <code>df</code> satisfies every condition, otherwise false.
+     */
+    public boolean matches(DirectoryOrFile df){
+        for(Predicate<DirectoryOrFile> condition : conditions)
+            if(!condition.test(df))
+                return false;
+        return true;
+    }
+
+    /**
+     * Helper method for size and mtime.
+     * Returns 1 if <code>arg</code> starts with "+", -1 if it starts with "-", otherwise 0.
+     */
+    private static int sign(String arg){
+        if(arg == null || arg.isEmpty())
+            throw new IllegalArgumentException("Error: Missing argument.");
+        return arg.charAt(0) == '+' ? 1 : (arg.charAt(0) == '-' ? -1 : 0);
+    }
+
+    /**
+     * Helper method for size and mtime.
+     * Parses a non-negative number.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>number</code> is not a non-negative number.
+     */
+    private static long parse(String number, String option){
+        try{
+            long n = Long.parseLong(number);
+            if(n >= 0)
+                return n;
+        } catch(NumberFormatException ignored){
+        }
+        throw new IllegalArgumentException("Error: Invalid -" + option + " argument \"" + number + "\".");
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The Job class represents a command run in the background by the bash terminal. Each job runs on its own
+ * daemon thread, and everything the command prints is kept in a buffer of the job instead of being mixed
+ * with the output of the foreground commands. A job is killed by interrupting its thread; the walks over
+ * the structure check for it between directories/files and stop with a CancellationException.
+ *
+ * @author Zhen Wei Liao
+ */
+public class Job {
+    /**
+     * The work done by a job, which may throw any of the exceptions of the terminal commands.
+     */
+    public interface Command {
+        /**
+         * Runs the command.
+         *
+         * @throws Exception
+         *      when the command fails, which is reported in the output of the job.
+         */
+        void run() throws Exception;
+    }
+
+    private static final ThreadLocal<PrintStream> OUTPUT = new ThreadLocal<>();
+    private static PrintStream terminal = null;
+
+    private final int id;
+    private final String command;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Thread thread;
+    private volatile String status = "Running";
+
+    /**
+     * Constructor starts running <code>work</code> in the background.
+     *
+     * @param id
+     *      The job number, as shown by jobs and used by %n.
+     *
+     * @param command
+     *      The command line of the job.
+     *
+     * @param work
+     *      The work done by the job.
+     */
+    public Job(int id, String command, Command work){
+        this.id = id;
+        this.command = command;
+        thread = new Thread(() -> run(work), "job-" + id);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Replaces System.out with a stream that sends the output of every job thread to the buffer of its
+     * job, and the output of every other thread to the original System.out. Only the first call has an
+     * effect.
+     */
+    public static synchronized void captureOutput(){
+        if(terminal != null)
+            return;
+        terminal = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b){
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len){
+                target().write(b, off, len);
+            }
+
+            @Override
+            public void flush(){
+                target().flush();
+            }
+
+            private PrintStream target(){
+                PrintStream out = OUTPUT.get();
+                return out == null ? terminal : out;
+            }
+        }, true));
+    }
+
+    /**
+     * Checks whether the job running on the current thread has been killed.
+     *
+     * @throws CancellationException
+     *      when the current thread has been interrupted.
+     */
+    public static void checkCancelled(){
+        if(Thread.currentThread().isInterrupted())
+            throw new CancellationException("Error: Job was killed.");
+    }
+
+    /**
+     * Helper method for the constructor.
+     * Runs <code>work</code> with the output of the current thread sent to the buffer, and records how it
+     * ended. Errors are reported like failures, so a job never stays Running once its thread is gone.
+     */
+    private void run(Command work){
+        PrintStream out = new PrintStream(buffer, true);
+        OUTPUT.set(out);
+        try{
+            work.run();
+            status = "Done";
+        } catch(CancellationException e){
+            status = "Killed";
+        } catch(Exception e){
+            out.println(e.getMessage());
+            status = "Exit";
+        } catch(Throwable e){
+            out.println("Error: " + e);
+            status = "Exit";
+        } finally{
+            OUTPUT.remove();
+        }
+    }
+
+    /**
+     * Accessor. Returns the job number.
+     *
+     * @return
+     *      The number used by %n to refer to the job.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Accessor. Returns the status of the job.
+     *
+     * @return
+     *      "Running", "Done", "Exit" if the command failed, or "Killed".
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Indicates whether the job is still running.
+     *
+     * @return
+     *      True if the thread of the job is alive, otherwise false.
+     */
+    public boolean isRunning(){
+        return thread.isAlive();
+    }
+
+    /**
+     * Asks the job to stop at its next cancellation check.
+     */
+    public void kill(){
+        thread.interrupt();
+    }
+
+    /**
+     * Waits until the job has finished.
+     *
+     * @throws InterruptedException
+     *      when the waiting thread is interrupted.
+     */
+    public void await() throws InterruptedException {
+        thread.join();
+    }
+
+    /**
+     * Returns and clears everything the job has printed so far.
+     *
+     * @return
+     *      The buffered output of the job.
+     */
+    public String drainOutput(){
+        synchronized(buffer){
+            String output = buffer.toString();
+            buffer.reset();
+            return output;
+        }
+    }
+
+    /**
+     * Returns a string representation of the Job object.
+     *
+     * @return
+     *      A string representation in the format of "[id] status    command"
+     */
+    @Override
+    public String toString(){
+        return "[" + id + "] " + String.format("%-8s", status) + " " + command;
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The LinkCache class remembers the directories/files that symbolic links resolved to. Along with every
+ * target, it keeps the directories whose children were looked up to reach it, since a target can only
+ * change once one of those directories loses a child. Adding directories/files never changes a cached
+ * target, as broken links are not cached.
+ *
+ * The cache is shared by every thread holding the read lock of a DirectoryTree, so all of its methods are
+ * synchronized.
+ *
+ * @author Zhen Wei Liao
+ */
+public class LinkCache {
+    private final Map<DirectoryOrFile, DirectoryOrFile> targets = new IdentityHashMap<>();
+    private final Map<DirectoryOrFile, List<DirectoryOrFile>> dependencies = new IdentityHashMap<>();
+    private final Map<DirectoryOrFile, Set<DirectoryOrFile>> dependents = new IdentityHashMap<>();
+
+    /**
+     * Returns the cached target of <code>link</code>, and adds the directories it depends on to
+     * <code>walked</code>.
+     *
+     * @param link
+     *      The symbolic link being followed.
+     *
+     * @param walked
+     *      Directories the caller's own resolution depends on.
+     *
+     * @return
+     *      The cached target, or null if <code>link</code> is not cached.
+     */
+    public synchronized DirectoryOrFile get(DirectoryOrFile link, Collection<DirectoryOrFile> walked){
+        DirectoryOrFile target = targets.get(link);
+        if(target != null)
+            walked.addAll(dependencies.get(link));
+        return target;
+    }
+
+    /**
+     * Caches the target of <code>link</code>.
+     *
+     * @param link
+     *      The resolved symbolic link.
+     *
+     * @param target
+     *      The directory/file <code>link</code> resolved to.
+     *
+     * @param walked
+     *      Directories whose children were looked up to reach <code>target</code>.
+     */
+    public synchronized void put(DirectoryOrFile link, DirectoryOrFile target, List<DirectoryOrFile> walked){
+        drop(link);
+        targets.put(link, target);
+        dependencies.put(link, walked);
+        for(DirectoryOrFile dir : walked)
+            dependents.computeIfAbsent(dir, d -> Collections.newSetFromMap(new IdentityHashMap<>())).add(link);
+    }
+
+    /**
+     * Forgets every target reached through a child of <code>dir</code>, once one of its children is removed
+     * or moved away.
+     *
+     * @param dir
+     *      The directory that lost a child.
+     */
+    public synchronized void invalidate(DirectoryOrFile dir){
+        Set<DirectoryOrFile> links = dependents.get(dir);
+        if(links != null)
+            for(DirectoryOrFile link : new ArrayList<>(links))
+                drop(link);
+    }
+
+    /**
+     * Forgets every target reached through <code>dir</code> or a directory under it, once the children of
+     * <code>dir</code> are evicted and replaced by new objects when they're loaded back.
+     *
+     * @param dir
+     *      The evicted directory.
+     */
+    public synchronized void invalidateSubtree(DirectoryOrFile dir){
+        List<DirectoryOrFile> inside = new ArrayList<>();
+        for(DirectoryOrFile df : dependents.keySet()){
+            for(DirectoryOrFile ancestor = df; ancestor != null; ancestor = ancestor.getParent()){
+                if(ancestor == dir){
+                    inside.add(df);
+                    break;
+                }
+            }
+        }
+        for(DirectoryOrFile df : inside)
+            invalidate(df);
+    }
+
+    /**
+     * Forgets every cached target.
+     */
+    public synchronized void clear(){
+        targets.clear();
+        dependencies.clear();
+        dependents.clear();
+    }
+
+    /**
+     * Helper method for put and invalidate.
+     * Forgets the target of <code>link</code> and its dependencies.
+     */
+    private void drop(DirectoryOrFile link){
+        targets.remove(link);
+        List<DirectoryOrFile> walked = dependencies.remove(link);
+        if(walked == null)
+            return;
+        for(DirectoryOrFile dir : walked){
+            Set<DirectoryOrFile> links = dependents.get(dir);
+            if(links != null){
+                links.remove(link);
+                if(links.isEmpty())
+                    dependents.remove(dir);
+            }
+        }
+    }
+}
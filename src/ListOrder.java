@@ -0,0 +1,97 @@
+import java.util.Comparator;
+
+/**
+ * The ListOrder enum lists the orders in which ls can sort the directories/files of a directory. Each order
+ * also produces a continuation cursor for the last directory/file of a page, so that the next page can be
+ * listed even if the directory was modified in between.
+ *
+ * @author Zhen Wei Liao
+ */
+public enum ListOrder {
+    /**
+     * Alphabetical order of the names.
+     */
+    NAME(Comparator.comparing(DirectoryOrFile::getName)),
+
+    /**
+     * Most recently modified first, ties broken by name.
+     */
+    TIME(Comparator.comparingLong(DirectoryOrFile::getModified).reversed()
+            .thenComparing(DirectoryOrFile::getName)),
+
+    /**
+     * Largest first, ties broken by name.
+     */
+    SIZE(Comparator.comparingLong(DirectoryOrFile::getSize).reversed()
+            .thenComparing(DirectoryOrFile::getName));
+
+    private final Comparator<DirectoryOrFile> comparator;
+
+    /**
+     * Constructor creates an order from the comparator that defines it.
+     *
+     * @param comparator
+     *      Comparator sorting the directories/files in the current order.
+     */
+    ListOrder(Comparator<DirectoryOrFile> comparator){
+        this.comparator = comparator;
+    }
+
+    /**
+     * Accessor. Returns the comparator that defines the current order.
+     *
+     * @return
+     *      Comparator sorting the directories/files in the current order.
+     */
+    public Comparator<DirectoryOrFile> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the continuation cursor pointing right after <code>df</code>.
+     *
+     * @param df
+     *      The last directory/file of a page.
+     *
+     * @return
+     *      The name of <code>df</code>, prefixed with its modification time or size and a colon for the
+     *      TIME and SIZE orders.
+     */
+    public String cursorOf(DirectoryOrFile df){
+        return switch (this) {
+            case NAME -> df.getName();
+            case TIME -> df.getModified() + ":" + df.getName();
+            case SIZE -> df.getSize() + ":" + df.getName();
+        };
+    }
+
+    /**
+     * Compares <code>df</code> with the position a continuation cursor points to.
+     *
+     * @param df
+     *      The directory/file being compared.
+     *
+     * @param cursor
+     *      A cursor returned by <code>cursorOf</code> for the same order.
+     *
+     * @return
+     *      A positive number if <code>df</code> comes after the cursor, otherwise zero or a negative number.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>cursor</code> was not produced by the current order.
+     */
+    public int compareToCursor(DirectoryOrFile df, String cursor){
+        if(this == NAME)
+            return df.getName().compareTo(cursor);
+
+        int colon = cursor.indexOf(':');
+        long key;
+        try{
+            key = Long.parseLong(cursor.substring(0, Math.max(colon, 0)));
+        } catch(NumberFormatException e){
+            throw new IllegalArgumentException("Error: Invalid ls cursor \"" + cursor + "\".");
+        }
+        int cmp = Long.compare(key, this == TIME ? df.getModified() : df.getSize());
+        return cmp != 0 ? cmp : df.getName().compareTo(cursor.substring(colon + 1));
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The SubtreeIterator class lazily walks through every directory/file under a starting DirectoryOrFile
+ * object in the given TraversalOrder. The walk keeps its own stack/queue instead of recursing, so deep
+ * structures cannot overflow the call stack and the walk can be stopped at any point.
+ *
+ * Modifying the structure while it is being iterated results in unspecified behavior. When the iterator
+ * runs inside a background job that gets killed, <code>next()</code> throws a CancellationException.
+ *
+ * @author Zhen Wei Liao
+ */
+public class SubtreeIterator implements Iterator<TraversalEntry> {
+    private final TraversalOrder order;
+    private final ArrayDeque<TraversalEntry> pending = new ArrayDeque<>();
+    private final ArrayDeque<Integer> nextChild = new ArrayDeque<>();
+
+    /**
+     * Constructor creates an iterator that starts from <code>start</code>.
+     *
+     * @param start
+     *      The directory/file the traversal starts from. It's visited with a depth of 0.
+     *
+     * @param order
+     *      The order in which the directories/files are visited.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>start</code> or <code>order</code> is null.
+     */
+    public SubtreeIterator(DirectoryOrFile start, TraversalOrder order){
+        if(start == null || order == null)
+            throw new IllegalArgumentException("Error: Traversal requires a starting directory and an order.");
+        this.order = order;
+        pending.push(new TraversalEntry(start, 0));
+        if(order == TraversalOrder.POST_ORDER)
+            nextChild.push(0);
+    }
+
+    /**
+     * Checks if there are directories/files left to visit.
+     *
+     * @return
+     *      True if <code>next()</code> would return another entry, otherwise false.
+     */
+    @Override
+    public boolean hasNext(){
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Returns the next directory/file of the traversal.
+     *
+     * @return
+     *      The next visited directory/file along with its depth.
+     *
+     * @throws NoSuchElementException
+     *      when every directory/file has been visited.
+     */
+    @Override
+    public TraversalEntry next(){
+        if(pending.isEmpty())
+            throw new NoSuchElementException("Error: No more directories/files to visit.");
+        Job.checkCancelled();
+
+        switch (order) {
+            case PRE_ORDER -> {
+                TraversalEntry entry = pending.pop();
+                DirectoryOrFile[] children = entry.getDF().getChildrenDF();
+                for(int i = children.length - 1; i >= 0; i--)
+                    if(children[i] != null)
+                        pending.push(new TraversalEntry(children[i], entry.getDepth() + 1));
+                return entry;
+            }
+            case BREADTH_FIRST -> {
+                TraversalEntry entry = pending.poll();
+                for(DirectoryOrFile df : entry.getDF().getChildrenDF())
+                    if(df != null)
+                        pending.offer(new TraversalEntry(df, entry.getDepth() + 1));
+                return entry;
+            }
+            default -> {
+                return nextPostOrder();
+            }
+        }
+    }
+
+    /**
+     * Helper method for next.
+     * Descends from the top of the stack to its deepest unvisited child and returns the first entry whose
+     * children have all been visited.
+     *
+     * @return
+     *      The next directory/file in post-order.
+     */
+    private TraversalEntry nextPostOrder(){
+        while(true){
+            TraversalEntry top = pending.peek();
+            DirectoryOrFile[] children = top.getDF().getChildrenDF();
+            int i = nextChild.pop();
+            while(i < children.length && children[i] == null)
+                i++;
+            if(i == children.length){
+                return pending.pop();
+            }
+            nextChild.push(i + 1);
+            pending.push(new TraversalEntry(children[i], top.getDepth() + 1));
+            nextChild.push(0);
+        }
+    }
+}
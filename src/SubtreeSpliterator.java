@@ -0,0 +1,128 @@
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The SubtreeSpliterator class covers every directory/file under a starting DirectoryOrFile object and can
+ * be split into independent parts, so that a parallel stream over a large subtree spreads the walk across
+ * several threads. The directories/files are visited depth-first, but no encounter order is guaranteed
+ * once the spliterator has been split.
+ *
+ * @author Zhen Wei Liao
+ */
+public class SubtreeSpliterator implements Spliterator<DirectoryOrFile> {
+    private final ArrayDeque<DirectoryOrFile> subtrees;
+    private final ArrayDeque<DirectoryOrFile> singles;
+    private long estimate;
+
+    /**
+     * Constructor creates a spliterator covering the subtree of <code>start</code>.
+     *
+     * @param start
+     *      The directory/file the traversal starts from.
+     *
+     * @throws IllegalArgumentException
+     *      when <code>start</code> is null.
+     */
+    public SubtreeSpliterator(DirectoryOrFile start){
+        if(start == null)
+            throw new IllegalArgumentException("Error: Traversal requires a starting directory.");
+        subtrees = new ArrayDeque<>();
+        singles = new ArrayDeque<>();
+        subtrees.push(start);
+        estimate = Long.MAX_VALUE;
+    }
+
+    /**
+     * Constructor used by trySplit to hand off a part of the remaining subtrees.
+     *
+     * @param subtrees
+     *      Roots of the subtrees covered by the new spliterator.
+     *
+     * @param estimate
+     *      Estimated number of directories/files covered by the new spliterator.
+     */
+    private SubtreeSpliterator(ArrayDeque<DirectoryOrFile> subtrees, long estimate){
+        this.subtrees = subtrees;
+        this.singles = new ArrayDeque<>();
+        this.estimate = estimate;
+    }
+
+    /**
+     * Visits the next directory/file, if any.
+     *
+     * @param action
+     *      Action performed on the visited directory/file.
+     *
+     * @return
+     *      False if there are no directories/files left to visit, otherwise true.
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super DirectoryOrFile> action){
+        Job.checkCancelled();
+        if(!singles.isEmpty()){
+            action.accept(singles.pop());
+            return true;
+        }
+        if(subtrees.isEmpty())
+            return false;
+
+        DirectoryOrFile df = subtrees.pop();
+        DirectoryOrFile[] children = df.getChildrenDF();
+        for(int i = children.length - 1; i >= 0; i--)
+            if(children[i] != null)
+                subtrees.push(children[i]);
+        action.accept(df);
+        return true;
+    }
+
+    /**
+     * Hands off half of the remaining subtrees to a new spliterator. When only a single subtree is left,
+     * its root is kept to be visited by this spliterator and its children are split instead.
+     *
+     * @return
+     *      A spliterator covering a part of the remaining directories/files, or null if the remaining
+     *      work cannot be split.
+     */
+    @Override
+    public Spliterator<DirectoryOrFile> trySplit(){
+        while(subtrees.size() == 1){
+            DirectoryOrFile df = subtrees.pop();
+            singles.push(df);
+            for(DirectoryOrFile child : df.getChildrenDF())
+                if(child != null)
+                    subtrees.push(child);
+        }
+        if(subtrees.size() < 2)
+            return null;
+
+        ArrayDeque<DirectoryOrFile> handOff = new ArrayDeque<>();
+        for(int i = subtrees.size() / 2; i > 0; i--)
+            handOff.push(subtrees.pollLast());
+        estimate >>>= 1;
+        return new SubtreeSpliterator(handOff, estimate);
+    }
+
+    /**
+     * Returns an estimate of the number of directories/files left to visit. The size of a subtree is not
+     * known in advance, so the estimate is only halved on each split.
+     *
+     * @return
+     *      Estimated number of directories/files left to visit.
+     */
+    @Override
+    public long estimateSize(){
+        return (subtrees.isEmpty() && singles.isEmpty()) ? 0 : estimate;
+    }
+
+    /**
+     * Returns the characteristics of the spliterator.
+     *
+     * @return
+     *      NONNULL and DISTINCT, since every directory/file is visited exactly once.
+     */
+    @Override
+    public int characteristics(){
+        return NONNULL | DISTINCT;
+    }
+}
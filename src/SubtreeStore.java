@@ -0,0 +1,291 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * The SubtreeStore class holds the cold subtrees that a DirectoryTree has evicted from memory. Evicted
+ * children are appended to a segment file and the evicted directory is left in the structure as a stub,
+ * which loads its children back the first time they are accessed. The store also keeps the memory budget,
+ * the number of DirectoryOrFile objects currently held in memory, and counters for evictions and faults.
+ *
+ * The segment file only grows; space used by subtrees that were loaded back or removed is not reclaimed.
+ *
+ * @author Zhen Wei Liao
+ */
+public class SubtreeStore implements Closeable {
+    private static final byte FILE = 0;
+    private static final byte DIRECTORY = 1;
+    private static final byte STUB = 2;
+    private static final byte LINK = 3;
+
+    private final RandomAccessFile segment;
+    private final int budget;
+    private int residentNodes;
+    private long evictions = 0;
+    private long faults = 0;
+
+    /**
+     * Constructor creates a store backed by an empty segment file.
+     *
+     * @param segmentPath
+     *      Path of the segment file. An existing file is truncated.
+     *
+     * @param budget
+     *      Maximum number of DirectoryOrFile objects to keep in memory.
+     *
+     * @param residentNodes
+     *      Number of DirectoryOrFile objects already in memory.
+     *
+     * @throws IOException
+     *      when the segment file cannot be created.
+     */
+    public SubtreeStore(String segmentPath, int budget, int residentNodes) throws IOException {
+        File file = new File(segmentPath);
+        segment = new RandomAccessFile(file, "rw");
+        segment.setLength(0);
+        file.deleteOnExit();
+        this.budget = budget;
+        this.residentNodes = residentNodes;
+    }
+
+    /**
+     * Accessor. Returns the memory budget.
+     *
+     * @return
+     *      Maximum number of DirectoryOrFile objects to keep in memory.
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Accessor. Returns the number of DirectoryOrFile objects currently held in memory.
+     *
+     * @return
+     *      Number of resident DirectoryOrFile objects.
+     */
+    public synchronized int getResidentNodes() {
+        return residentNodes;
+    }
+
+    /**
+     * Accessor. Returns the number of subtrees evicted to the segment file so far.
+     *
+     * @return
+     *      Number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Accessor. Returns the number of stubs loaded back from the segment file so far.
+     *
+     * @return
+     *      Number of faults.
+     */
+    public synchronized long getFaults() {
+        return faults;
+    }
+
+    /**
+     * Indicates whether more DirectoryOrFile objects are held in memory than the budget allows.
+     *
+     * @return
+     *      True if the number of resident objects exceeds the budget, otherwise false.
+     */
+    public synchronized boolean isOverBudget(){
+        return residentNodes > budget;
+    }
+
+    /**
+     * Records that DirectoryOrFile objects were added to or removed from memory by the DirectoryTree.
+     *
+     * @param delta
+     *      Number of objects added (positive) or removed (negative).
+     */
+    synchronized void adjustResident(int delta){
+        residentNodes += delta;
+    }
+
+    /**
+     * Writes the children of <code>dir</code> to the end of the segment file and turns <code>dir</code>
+     * into a stub.
+     *
+     * @param dir
+     *      The directory whose children are evicted.
+     *
+     * @throws UncheckedIOException
+     *      when the segment file cannot be written. <code>dir</code> is left untouched.
+     */
+    synchronized void evict(DirectoryOrFile dir){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try{
+            writeChildren(new DataOutputStream(bytes), dir);
+            long offset = segment.length();
+            segment.seek(offset);
+            segment.writeInt(bytes.size());
+            segment.write(bytes.toByteArray());
+            residentNodes -= dir.residentSize() - 1;
+            dir.evict(this, offset);
+            evictions++;
+        } catch(IOException e){
+            throw new UncheckedIOException("Error: Cannot evict \"" + dir.getPath() + "\".", e);
+        }
+    }
+
+    /**
+     * Reads the children stored at <code>offset</code> and adds them back to <code>stub</code>.
+     *
+     * @param stub
+     *      The evicted directory, whose children array has been emptied.
+     *
+     * @param offset
+     *      Position of the evicted children in the segment file.
+     *
+     * @throws UncheckedIOException
+     *      when the segment file cannot be read.
+     */
+    synchronized void load(DirectoryOrFile stub, long offset){
+        try{
+            segment.seek(offset);
+            byte[] bytes = new byte[segment.readInt()];
+            segment.readFully(bytes);
+            readChildren(new DataInputStream(new ByteArrayInputStream(bytes)), stub);
+            residentNodes += stub.residentSize() - 1;
+            faults++;
+        } catch(IOException e){
+            throw new UncheckedIOException("Error: Cannot load \"" + stub.getPath() + "\".", e);
+        }
+    }
+
+    /**
+     * Helper method for evict.
+     * Serializes the children of <code>dir</code> and everything under them, along with the timestamps and
+     * size of every directory/file, the content hash of every directory and the target of every symbolic
+     * link. The children of a directory directly follow its own record, preceded by their count. Stubs that
+     * are already evicted keep pointing to their own position in the segment file. The subtree is walked
+     * with an explicit stack, so its depth is not limited by the call stack.
+     *
+     * @param out
+     *      Stream the children are written to.
+     *
+     * @param dir
+     *      The directory whose children are written.
+     */
+    private void writeChildren(DataOutputStream out, DirectoryOrFile dir) throws IOException {
+        ArrayDeque<Object[]> pending = new ArrayDeque<>();
+        writeCount(out, dir);
+        pending.push(new Object[]{dir.residentChildren(), new int[]{0}});
+
+        while(!pending.isEmpty()){
+            Object[] frame = pending.peek();
+            DirectoryOrFile[] children = (DirectoryOrFile[]) frame[0];
+            int[] next = (int[]) frame[1];
+            while(next[0] < children.length && children[next[0]] == null)
+                next[0]++;
+            if(next[0] == children.length){
+                pending.pop();
+                continue;
+            }
+            DirectoryOrFile df = children[next[0]++];
+            out.writeUTF(df.getName());
+            out.writeLong(df.getCreated());
+            out.writeLong(df.getModified());
+            out.writeLong(df.getAccessed());
+            out.writeLong(df.getLatestModified());
+            out.writeLong(df.getSize());
+            if(df.isSymbolicLink()){
+                out.writeByte(LINK);
+                out.writeUTF(df.getLinkTarget());
+            }
+            else if(df.isFile())
+                out.writeByte(FILE);
+            else if(df.isEvicted()){
+                out.writeByte(STUB);
+                out.writeLong(df.getContentHash());
+                out.writeLong(df.getSegmentOffset());
+                out.writeInt(df.getNumOfChildren());
+            }
+            else{
+                out.writeByte(DIRECTORY);
+                out.writeLong(df.getContentHash());
+                writeCount(out, df);
+                pending.push(new Object[]{df.residentChildren(), new int[]{0}});
+            }
+        }
+    }
+
+    /**
+     * Helper method for writeChildren.
+     * Writes the number of children held by <code>dir</code>.
+     */
+    private static void writeCount(DataOutputStream out, DirectoryOrFile dir) throws IOException {
+        int count = 0;
+        for(DirectoryOrFile df : dir.residentChildren())
+            if(df != null)
+                count++;
+        out.writeInt(count);
+    }
+
+    /**
+     * Helper method for load.
+     * Rebuilds the children written by writeChildren and adds them to <code>dir</code>, keeping the
+     * directories still waiting for children on an explicit stack.
+     *
+     * @param in
+     *      Stream the children are read from.
+     *
+     * @param dir
+     *      The directory the children are added to.
+     */
+    private void readChildren(DataInputStream in, DirectoryOrFile dir) throws IOException {
+        ArrayDeque<Object[]> pending = new ArrayDeque<>();
+        pending.push(new Object[]{dir, new int[]{in.readInt()}});
+
+        while(!pending.isEmpty()){
+            Object[] frame = pending.peek();
+            int[] remaining = (int[]) frame[1];
+            if(remaining[0] == 0){
+                pending.pop();
+                continue;
+            }
+            remaining[0]--;
+            String name = in.readUTF();
+            long created = in.readLong(), modified = in.readLong(), accessed = in.readLong();
+            long latestModified = in.readLong(), size = in.readLong();
+            byte type = in.readByte();
+            DirectoryOrFile df = type == LINK ? new DirectoryOrFile(name, in.readUTF())
+                    : new DirectoryOrFile(name, type == FILE);
+            df.restoreMetadata(created, modified, accessed, latestModified, size);
+            ((DirectoryOrFile) frame[0]).adopt(df);
+            if(type == DIRECTORY || type == STUB)
+                df.setContentHash(in.readLong());
+            if(type == STUB){
+                long offset = in.readLong();
+                df.setNumOfChildren(in.readInt());
+                df.evict(this, offset);
+            }
+            else if(type == DIRECTORY)
+                pending.push(new Object[]{df, new int[]{in.readInt()}});
+        }
+    }
+
+    /**
+     * Closes the segment file. Stubs that have not been loaded back can no longer be accessed.
+     *
+     * @throws IOException
+     *      when the segment file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        segment.close();
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * The TraversalEntry class represents a single step of a subtree traversal. It contains the visited
+ * DirectoryOrFile object and its depth relative to the directory the traversal started from.
+ *
+ * @author Zhen Wei Liao
+ */
+public class TraversalEntry {
+    private final DirectoryOrFile df;
+    private final int depth;
+
+    /**
+     * Constructor creates an entry for a visited directory/file.
+     *
+     * @param df
+     *      The visited directory/file.
+     *
+     * @param depth
+     *      Depth of <code>df</code>, where the starting directory has a depth of 0.
+     */
+    public TraversalEntry(DirectoryOrFile df, int depth){
+        this.df = df;
+        this.depth = depth;
+    }
+
+    /**
+     * Accessor. Returns the visited directory/file.
+     *
+     * @return
+     *      The visited DirectoryOrFile object.
+     */
+    public DirectoryOrFile getDF() {
+        return df;
+    }
+
+    /**
+     * Accessor. Returns the depth of the visited directory/file.
+     *
+     * @return
+     *      Depth relative to the starting directory, which has a depth of 0.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns a string representation of the TraversalEntry object.
+     *
+     * @return
+     *      A string representation in the format of "depth: type: name"
+     */
+    @Override
+    public String toString(){
+        return depth + ": " + df;
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * The TraversalOrder enum lists the orders in which a subtree of the File Hierarchy Structure can be
+ * traversed by a SubtreeIterator.
+ *
+ * @author Zhen Wei Liao
+ */
+public enum TraversalOrder {
+    /**
+     * Depth-first, a directory is visited before the directories/files inside it.
+     */
+    PRE_ORDER,
+
+    /**
+     * Depth-first, a directory is visited after the directories/files inside it.
+     */
+    POST_ORDER,
+
+    /**
+     * Level by level, every directory/file of one depth is visited before the next depth.
+     */
+    BREADTH_FIRST
+}
@@ -0,0 +1,274 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The TreeArchive class writes a subtree of the File Hierarchy Structure to a sequential archive file and
+ * reads it back. The archive is a stream of one record per directory/file in pre-order, each holding its
+ * depth, type, name, timestamps and size, so it's written in a single pass without keeping more than the
+ * current traversal frontier in memory. When compression is requested, the archive is compressed on a
+ * separate thread that runs alongside the walk over the subtree.
+ *
+ * Symbolic links are archived with their targets. Hard links are archived as separate copies of the
+ * files they share their data with.
+ *
+ * @author Zhen Wei Liao
+ */
+public class TreeArchive {
+    private static final int MAGIC = 0x4C534152;
+    private static final int VERSION = 2;
+    private static final byte FILE = 0;
+    private static final byte DIRECTORY = 1;
+    private static final byte LINK = 2;
+    private static final byte END = -1;
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final DirectoryOrFile root;
+    private final int count;
+
+    /**
+     * Constructor creates an archive holding a detached subtree.
+     *
+     * @param root
+     *      Root of the subtree.
+     *
+     * @param count
+     *      Number of directories/files in the subtree.
+     */
+    private TreeArchive(DirectoryOrFile root, int count){
+        this.root = root;
+        this.count = count;
+    }
+
+    /**
+     * Accessor. Returns the root of the subtree read from an archive. It has no parent until it's added
+     * to a directory, and the paths of the directories/files under it are only correct once they're
+     * updated from their new parent.
+     *
+     * @return
+     *      Root of the read subtree.
+     */
+    public DirectoryOrFile getRoot() {
+        return root;
+    }
+
+    /**
+     * Accessor. Returns the number of directories/files read from an archive.
+     *
+     * @return
+     *      Number of directories/files in the read subtree.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the subtree of <code>root</code> to <code>file</code>. If anything goes wrong, the partially
+     * written file is deleted.
+     *
+     * @param root
+     *      Root of the exported subtree.
+     *
+     * @param file
+     *      Path of the archive file.
+     *
+     * @param compress
+     *      True to gzip the archive on a separate thread while the subtree is walked.
+     *
+     * @throws UncheckedIOException
+     *      when the archive file cannot be written.
+     */
+    public static void export(DirectoryOrFile root, String file, boolean compress){
+        try{
+            if(compress)
+                exportCompressed(root, file);
+            else{
+                try(OutputStream out = new FileOutputStream(file)){
+                    write(root, out);
+                }
+            }
+        } catch(IOException | RuntimeException e){
+            new File(file).delete();
+            if(e instanceof IOException)
+                throw new UncheckedIOException("Error: Cannot export to \"" + file + "\".", (IOException) e);
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Helper method for export.
+     * Walks the subtree on the current thread and passes the records through a pipe to a second thread,
+     * which compresses them into the archive file.
+     */
+    private static void exportCompressed(DirectoryOrFile root, String file) throws IOException {
+        PipedInputStream pipeIn = new PipedInputStream(PIPE_SIZE);
+        IOException[] failure = new IOException[1];
+        Thread compressor = new Thread(() -> {
+            try(OutputStream out = new GZIPOutputStream(new FileOutputStream(file), PIPE_SIZE)){
+                pipeIn.transferTo(out);
+            } catch(IOException e){
+                failure[0] = e;
+            }
+        }, "export-" + file);
+        compressor.setDaemon(true);
+
+        try(PipedOutputStream pipeOut = new PipedOutputStream(pipeIn)){
+            compressor.start();
+            write(root, pipeOut);
+        } finally{
+            try{
+                compressor.join();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(failure[0] != null)
+            throw failure[0];
+    }
+
+    /**
+     * Writes one record per directory/file under <code>root</code> to <code>out</code>, in pre-order.
+     *
+     * @param root
+     *      Root of the written subtree.
+     *
+     * @param out
+     *      Stream the archive is written to. It's flushed but not closed.
+     */
+    public static void write(DirectoryOrFile root, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, PIPE_SIZE));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+
+        Iterator<TraversalEntry> it = root.iterator(TraversalOrder.PRE_ORDER);
+        while(it.hasNext()){
+            TraversalEntry entry = it.next();
+            DirectoryOrFile df = entry.getDF();
+            data.writeByte(df.isSymbolicLink() ? LINK : (df.isFile() ? FILE : DIRECTORY));
+            data.writeInt(entry.getDepth());
+            data.writeUTF(df.getName());
+            if(df.isSymbolicLink())
+                data.writeUTF(df.getLinkTarget());
+            data.writeLong(df.getCreated());
+            data.writeLong(df.getModified());
+            data.writeLong(df.getAccessed());
+            data.writeLong(df.getSize());
+        }
+        data.writeByte(END);
+        data.flush();
+    }
+
+    /**
+     * Reads the archive file at <code>file</code>. Compressed archives are detected automatically.
+     *
+     * @param file
+     *      Path of the archive file.
+     *
+     * @return
+     *      The archive holding the detached subtree that was read.
+     *
+     * @throws UncheckedIOException
+     *      when the file cannot be read or is not a valid archive.
+     */
+    public static TreeArchive read(String file){
+        try(InputStream in = new BufferedInputStream(new FileInputStream(file), PIPE_SIZE)){
+            in.mark(2);
+            boolean compressed = in.read() == 0x1F && in.read() == 0x8B;
+            in.reset();
+            return read(compressed ? new GZIPInputStream(in, PIPE_SIZE) : in);
+        } catch(IOException e){
+            throw new UncheckedIOException("Error: Cannot import \"" + file + "\".", e);
+        }
+    }
+
+    /**
+     * Rebuilds the subtree written by <code>write</code>. Timestamps and sizes are restored as they were
+     * when the archive was written.
+     *
+     * @param in
+     *      Stream the archive is read from.
+     *
+     * @return
+     *      The archive holding the detached subtree that was read.
+     *
+     * @throws IOException
+     *      when the stream cannot be read or does not hold a valid archive.
+     */
+    public static TreeArchive read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if(data.readInt() != MAGIC)
+            throw new IOException("Not a directory/file archive.");
+        int version = data.readInt();
+        if(version < 1 || version > VERSION)
+            throw new IOException("Unsupported archive version " + version + ".");
+
+        ArrayDeque<Object[]> open = new ArrayDeque<>();
+        DirectoryOrFile root = null;
+        int count = 0;
+        try{
+            for(byte type = data.readByte(); type != END; type = data.readByte()){
+                Job.checkCancelled();
+                int depth = data.readInt();
+                String name = data.readUTF();
+                DirectoryOrFile df = type == LINK ? new DirectoryOrFile(name, data.readUTF())
+                        : new DirectoryOrFile(name, type == FILE);
+                long[] metadata = {data.readLong(), data.readLong(), data.readLong(), data.readLong(), Long.MIN_VALUE};
+                if((type != FILE && type != DIRECTORY && type != LINK) || depth > open.size()
+                        || (depth == 0) != (root == null))
+                    throw new IOException("Corrupted archive.");
+
+                while(open.size() > depth)
+                    close(open);
+                if(depth == 0)
+                    root = df;
+                else
+                    ((DirectoryOrFile) open.peek()[0]).addChild(df);
+                count++;
+                open.push(new Object[]{df, metadata});
+                if(type != DIRECTORY)
+                    close(open);
+            }
+        } catch(EOFException e){
+            throw new IOException("Archive is truncated.", e);
+        } catch(FullDirectoryException | NotADirectoryException | IllegalArgumentException e){
+            throw new IOException("Corrupted archive.", e);
+        }
+        while(!open.isEmpty())
+            close(open);
+        if(root == null)
+            throw new IOException("Archive is empty.");
+        return new TreeArchive(root, count);
+    }
+
+    /**
+     * Helper method for read.
+     * Restores the timestamps and size of the most recently opened directory/file once all of its
+     * children have been added, and passes its latest modification time on to its parent.
+     */
+    private static void close(ArrayDeque<Object[]> open){
+        Object[] frame = open.pop();
+        long[] metadata = (long[]) frame[1];
+        long latestModified = Math.max(metadata[1], metadata[4]);
+        ((DirectoryOrFile) frame[0]).restoreMetadata(metadata[0], metadata[1], metadata[2], latestModified,
+                metadata[3]);
+        if(!open.isEmpty()){
+            long[] parent = (long[]) open.peek()[1];
+            parent[4] = Math.max(parent[4], latestModified);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TreeBatch class collects mkdir, touch, mv and rm operations and applies them to a DirectoryTree as a
+ * single all-or-nothing change. Nothing is modified until <code>commit()</code> is called. While the batch
+ * is applied, the previous state of every modified directory is kept in a journal, so that a failing
+ * operation rolls the structure back to exactly how it was before the commit.
+ *
+ * @author Zhen Wei Liao
+ */
+public class TreeBatch {
+    private final DirectoryTree tree;
+    private final List<String[]> operations = new ArrayList<>();
+    private final Map<DirectoryOrFile, DirectoryOrFile[]> childrenBefore = new IdentityHashMap<>();
+    private final Map<DirectoryOrFile, Integer> countBefore = new IdentityHashMap<>();
+    private final Map<DirectoryOrFile, DirectoryOrFile> parentBefore = new IdentityHashMap<>();
+    private final Map<DirectoryOrFile, String> pathBefore = new IdentityHashMap<>();
+    private final Map<DirectoryOrFile, long[]> timesBefore = new IdentityHashMap<>();
+    private boolean committed = false;
+
+    /**
+     * Constructor creates an empty batch for <code>tree</code>.
+     *
+     * @param tree
+     *      The structure the batch is committed to.
+     */
+    TreeBatch(DirectoryTree tree){
+        this.tree = tree;
+    }
+
+    /**
+     * Queues the creation of a directory.
+     *
+     * @param path
+     *      Absolute path, or path relative to the working directory at commit time, of the new directory.
+     *      Every directory above it must already exist when the operation is applied.
+     *
+     * @return
+     *      The current batch.
+     */
+    public TreeBatch makeDirectory(String path){
+        return queue("mkdir", path, null);
+    }
+
+    /**
+     * Queues the creation of a directory along with every missing directory above it, like
+     * <code>mkdir -p</code>. Directories that already exist are left as they are.
+     *
+     * @param path
+     *      Absolute path, or path relative to the working directory at commit time, of the new directory.
+     *
+     * @return
+     *      The current batch.
+     */
+    public TreeBatch makeDirectories(String path){
+        return queue("mkdir -p", path, null);
+    }
+
+    /**
+     * Queues the creation of a file.
+     *
+     * @param path
+     *      Absolute path, or path relative to the working directory at commit time, of the new file.
+     *      Every directory above it must already exist when the operation is applied. If the file
+     *      already exists, only its modification time is updated.
+     *
+     * @return
+     *      The current batch.
+     */
+    public TreeBatch makeFile(String path){
+        return queue("touch", path, null);
+    }
+
+    /**
+     * Queues moving a directory/file to another directory.
+     *
+     * @param srcPath
+     *      Absolute path of the moved directory/file.
+     *
+     * @param dstPath
+     *      Absolute path of the destination directory.
+     *
+     * @return
+     *      The current batch.
+     */
+    public TreeBatch move(String srcPath, String dstPath){
+        return queue("mv", srcPath, dstPath);
+    }
+
+    /**
+     * Queues removing a directory/file from the working directory.
+     *
+     * @param name
+     *      Name of the removed directory/file.
+     *
+     * @param directory
+     *      True if <code>name</code> is a directory, false if it's a file.
+     *
+     * @return
+     *      The current batch.
+     */
+    public TreeBatch remove(String name, boolean directory){
+        return queue(directory ? "rm -r" : "rm", name, null);
+    }
+
+    /**
+     * Helper method for the queuing methods.
+     *
+     * @throws IllegalArgumentException
+     *      when the batch has already been committed or <code>first</code> is empty/null.
+     */
+    private TreeBatch queue(String cmd, String first, String second){
+        if(committed)
+            throw new IllegalArgumentException("Error: Batch has already been committed.");
+        if(first == null || first.isEmpty() || (cmd.equals("mv") && (second == null || second.isEmpty())))
+            throw new IllegalArgumentException("Error: Invalid " + cmd.split(" ")[0] + " command.");
+        operations.add(new String[]{cmd, first, second});
+        return this;
+    }
+
+    /**
+     * Returns the number of queued operations.
+     *
+     * @return
+     *      Number of operations in the batch.
+     */
+    public int size(){
+        return operations.size();
+    }
+
+    /**
+     * Applies every queued operation to the structure. Either all operations succeed, or the structure is
+     * left unchanged and the error of the first failing operation is thrown.
+     *
+     * @throws IllegalArgumentException
+     *      when the batch has already been committed, or an operation is invalid.
+     */
+    public void commit() throws NotADirectoryException, FullDirectoryException, DFNotFoundException {
+        if(committed)
+            throw new IllegalArgumentException("Error: Batch has already been committed.");
+        committed = true;
+        tree.commit(this);
+    }
+
+    /**
+     * Accessor. Returns the queued operations in the format of {command, argument, argument}.
+     *
+     * @return
+     *      List of queued operations.
+     */
+    List<String[]> getOperations(){
+        return operations;
+    }
+
+    /**
+     * Records the children of <code>dir</code> before the batch modifies them for the first time, along with
+     * the timestamps of <code>dir</code> and of every directory above it, which the modification raises.
+     *
+     * @param dir
+     *      The directory about to be modified.
+     */
+    void recordChildren(DirectoryOrFile dir){
+        if(!childrenBefore.containsKey(dir)){
+            childrenBefore.put(dir, dir.getChildrenDF().clone());
+            countBefore.put(dir, dir.getNumOfChildren());
+        }
+        for(DirectoryOrFile df = dir; df != null && !timesBefore.containsKey(df); df = df.getParent())
+            timesBefore.put(df, new long[]{df.getCreated(), df.getModified(), df.getAccessed(),
+                    df.getLatestModified(), df.getSize()});
+    }
+
+    /**
+     * Records the parent and path of <code>df</code> before the batch moves it for the first time.
+     *
+     * @param df
+     *      The directory/file about to be moved.
+     */
+    void recordLink(DirectoryOrFile df){
+        if(!parentBefore.containsKey(df)){
+            parentBefore.put(df, df.getParent());
+            pathBefore.put(df, df.getPath());
+        }
+    }
+
+    /**
+     * Returns the number of directories/files the batch has added to, minus the number it has removed from,
+     * the recorded directories so far.
+     *
+     * @return
+     *      Net change in the number of children of the recorded directories.
+     */
+    int childDelta(){
+        int delta = 0;
+        for(Map.Entry<DirectoryOrFile, Integer> entry : countBefore.entrySet())
+            delta += entry.getKey().getNumOfChildren() - entry.getValue();
+        return delta;
+    }
+
+    /**
+     * Restores every recorded directory/file to the state it had before the commit started. Directories/files
+     * created by the batch are detached, and the hashes are recomputed only once every parent link is back
+     * in place.
+     */
+    void rollback(){
+        for(Map.Entry<DirectoryOrFile, DirectoryOrFile[]> entry : childrenBefore.entrySet()){
+            for(DirectoryOrFile df : entry.getKey().residentChildren())
+                if(df != null && !parentBefore.containsKey(df) && !contains(entry.getValue(), df))
+                    df.setParent(null);
+            entry.getKey().restoreChildren(entry.getValue());
+            entry.getKey().setNumOfChildren(countBefore.get(entry.getKey()));
+        }
+        for(Map.Entry<DirectoryOrFile, DirectoryOrFile> entry : parentBefore.entrySet()){
+            entry.getKey().setParent(entry.getValue());
+            entry.getKey().setPath(pathBefore.get(entry.getKey()));
+        }
+        for(DirectoryOrFile dir : childrenBefore.keySet())
+            dir.rehash();
+        for(Map.Entry<DirectoryOrFile, long[]> entry : timesBefore.entrySet()){
+            long[] times = entry.getValue();
+            entry.getKey().restoreMetadata(times[0], times[1], times[2], times[3], times[4]);
+        }
+        clearJournal();
+    }
+
+    /**
+     * Helper method for rollback.
+     * Checks whether <code>df</code> itself, not just an equal object, is in <code>children</code>.
+     */
+    private static boolean contains(DirectoryOrFile[] children, DirectoryOrFile df){
+        for(DirectoryOrFile child : children)
+            if(child == df)
+                return true;
+        return false;
+    }
+
+    /**
+     * Discards the journal once the batch has been applied.
+     */
+    void clearJournal(){
+        childrenBefore.clear();
+        countBefore.clear();
+        parentBefore.clear();
+        pathBefore.clear();
+        timesBefore.clear();
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TreeDiff class compares the contents of two directories and reports the directories/files that were
+ * added, removed or moved from the first to the second. Only subtrees whose structural hashes differ are
+ * descended into, so the cost grows with the size of the difference rather than the size of the subtrees.
+ *
+ * @author Zhen Wei Liao
+ */
+public class TreeDiff {
+    private final List<String> added = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+    private final List<String> moved = new ArrayList<>();
+
+    /**
+     * Constructor compares the contents of <code>before</code> with the contents of <code>after</code>.
+     * The names of the two directories themselves are ignored.
+     *
+     * @param before
+     *      The directory taken as the original.
+     *
+     * @param after
+     *      The directory taken as the modified one.
+     *
+     * @throws IllegalArgumentException
+     *      when either <code>before</code> or <code>after</code> is not a directory.
+     */
+    public TreeDiff(DirectoryOrFile before, DirectoryOrFile after){
+        if(before == null || after == null || before.isFile() || after.isFile())
+            throw new IllegalArgumentException("Error: diff can only compare directories.");
+
+        Map<Long, List<String>> removedByHash = new HashMap<>();
+        Map<Long, List<String>> addedByHash = new HashMap<>();
+        ArrayDeque<Object[]> pending = new ArrayDeque<>();
+        pending.push(new Object[]{before, after, ""});
+
+        while(!pending.isEmpty()){
+            Job.checkCancelled();
+            Object[] pair = pending.pop();
+            DirectoryOrFile a = (DirectoryOrFile) pair[0], b = (DirectoryOrFile) pair[1];
+            String prefix = (String) pair[2];
+            if(a.getContentHash() == b.getContentHash())
+                continue;
+
+            for(DirectoryOrFile df : a.getChildrenDF()){
+                if(df == null)
+                    continue;
+                DirectoryOrFile match = b.find(df.getName());
+                String path = prefix + df.getName();
+                if(replaced(df, match))
+                    removedByHash.computeIfAbsent(df.getHash(), h -> new ArrayList<>()).add(path);
+                else if(!df.isFile())
+                    pending.push(new Object[]{df, match, path + "/"});
+            }
+            for(DirectoryOrFile df : b.getChildrenDF()){
+                if(df == null)
+                    continue;
+                DirectoryOrFile match = a.find(df.getName());
+                if(replaced(df, match))
+                    addedByHash.computeIfAbsent(df.getHash(), h -> new ArrayList<>()).add(prefix + df.getName());
+            }
+        }
+
+        for(Map.Entry<Long, List<String>> entry : removedByHash.entrySet()){
+            List<String> targets = addedByHash.get(entry.getKey());
+            for(String path : entry.getValue()){
+                if(targets != null && !targets.isEmpty())
+                    moved.add(path + " -> " + targets.remove(targets.size() - 1));
+                else
+                    removed.add(path);
+            }
+        }
+        for(List<String> paths : addedByHash.values())
+            added.addAll(paths);
+        added.sort(null);
+        removed.sort(null);
+        moved.sort(null);
+    }
+
+    /**
+     * Helper method for the constructor.
+     * Checks whether <code>df</code> has no counterpart named alike on the other side. A directory is only
+     * matched by a directory, and a file or symbolic link only by one with the same hash, so that a link
+     * pointing somewhere else is reported as replaced.
+     *
+     * @param df
+     *      The directory/file on one side.
+     *
+     * @param match
+     *      The directory/file with the same name on the other side, may be null.
+     *
+     * @return
+     *      True if <code>df</code> is reported as removed or added, otherwise false.
+     */
+    private static boolean replaced(DirectoryOrFile df, DirectoryOrFile match){
+        return match == null || match.isFile() != df.isFile() || (df.isFile() && match.getHash() != df.getHash());
+    }
+
+    /**
+     * Accessor. Returns the paths, relative to the compared directories, that only exist in the second one.
+     *
+     * @return
+     *      List of added paths.
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Accessor. Returns the paths, relative to the compared directories, that only exist in the first one.
+     *
+     * @return
+     *      List of removed paths.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Accessor. Returns the directories/files that kept their name and contents but changed location.
+     *
+     * @return
+     *      List of moves in the format of "old path -> new path".
+     */
+    public List<String> getMoved() {
+        return moved;
+    }
+
+    /**
+     * Indicates whether the compared directories have the same contents.
+     *
+     * @return
+     *      True if nothing was added, removed or moved, otherwise false.
+     */
+    public boolean isEmpty(){
+        return added.isEmpty() && removed.isEmpty() && moved.isEmpty();
+    }
+
+    /**
+     * Returns a string representation of the differences, one per line.
+     *
+     * @return
+     *      Lines prefixed with "+ " for added, "- " for removed and "> " for moved directories/files.
+     */
+    @Override
+    public String toString(){
+        StringBuilder str = new StringBuilder();
+        for(String path : removed)
+            str.append("- ").append(path).append("\n");
+        for(String path : added)
+            str.append("+ ").append(path).append("\n");
+        for(String path : moved)
+            str.append("> ").append(path).append("\n");
+        return str.isEmpty() ? "No differences." : str.substring(0, str.length() - 1);
+    }
+}